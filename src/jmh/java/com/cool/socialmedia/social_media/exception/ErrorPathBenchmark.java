@@ -0,0 +1,98 @@
+package com.cool.socialmedia.social_media.exception;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.ProblemDetailJacksonMixin;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * A 404 from a controller to response bytes: a ResponseStatusException
+ * through the ProblemDetail handler and JSON mapper, versus a
+ * StacklessResponseStatusException through the pre-serialized template.
+ * The exception is thrown {@code depth} frames down to stand in for the
+ * servlet and Spring MVC stack a real request runs on.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="ErrorPathBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorPathBenchmark {
+
+    @Param({ "20", "120" })
+    int depth;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder()
+            .addMixIn(ProblemDetail.class, ProblemDetailJacksonMixin.class)
+            .build();
+    private CustomizedResponseEntityExceptionHandler handler;
+    private ServletWebRequest webRequest;
+
+    @Setup
+    public void setUp() {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        handler = new CustomizedResponseEntityExceptionHandler(new MockEnvironment());
+        handler.setMessageSource(messageSource);
+        webRequest = new ServletWebRequest(new MockHttpServletRequest("DELETE", "/v1/users/99"));
+    }
+
+    @Benchmark
+    public byte[] responseStatusException() throws Exception {
+        try {
+            throwAt(depth, false);
+            return null;
+        } catch (ResponseStatusException e) {
+            ResponseEntity<Object> response = handler.handleException(e, webRequest);
+            ProblemDetail problem = (ProblemDetail) response.getBody();
+            problem.setInstance(URI.create(webRequest.getRequest().getRequestURI()));
+            return jsonMapper.writeValueAsBytes(problem);
+        }
+    }
+
+    @Benchmark
+    public byte[] stacklessTemplate() throws Exception {
+        try {
+            throwAt(depth, true);
+            return null;
+        } catch (StacklessResponseStatusException e) {
+            return (byte[]) handler.handleStacklessResponseStatusException(e, webRequest).getBody();
+        }
+    }
+
+    private static void throwAt(int depth, boolean stackless) {
+        if (depth > 0) {
+            throwAt(depth - 1, stackless);
+            return;
+        }
+        String reason = "User with id 99 not found";
+        throw stackless
+                ? new StacklessResponseStatusException(HttpStatus.NOT_FOUND, reason)
+                : new ResponseStatusException(HttpStatus.NOT_FOUND, reason);
+    }
+}
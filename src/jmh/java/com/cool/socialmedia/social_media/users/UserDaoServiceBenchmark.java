@@ -0,0 +1,81 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * In-memory {@link UserDaoService} operations at different store sizes.
+ * saveAndDelete inserts a fresh user and removes it again, so the store
+ * keeps its size for the whole run.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="UserDaoServiceBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(4)
+public class UserDaoServiceBenchmark {
+
+    private static final LocalDate DOB = LocalDate.of(1990, 1, 1);
+
+    @Param({ "1000", "100000", "1000000" })
+    int size;
+
+    private UserDaoService userDaoService;
+
+    @Setup
+    public void fillStore() {
+        userDaoService = new UserDaoService(UserPersistence.NONE, event -> {
+        });
+        List<User> batch = new ArrayList<>(UserBulkImporter.BATCH_SIZE);
+        for (int id = 100; id < 100 + size; id++) {
+            batch.add(new User(id, "user-" + id, DOB));
+            if (batch.size() == UserBulkImporter.BATCH_SIZE) {
+                userDaoService.saveAllIfAbsent(batch);
+                batch.clear();
+            }
+        }
+        userDaoService.saveAllIfAbsent(batch);
+    }
+
+    @Benchmark
+    public User findOne() {
+        return userDaoService.findOne(100 + ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    public User findMissing() {
+        return userDaoService.findOne(-1 - ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    public User saveAndDelete() {
+        User saved = userDaoService.saveIfAbsent(new User(null, "churn", DOB));
+        userDaoService.delete(saved.getId());
+        return saved;
+    }
+
+    @Benchmark
+    public UserPage<User> findPage() {
+        return userDaoService.findPage(100 + ThreadLocalRandom.current().nextInt(size), null, 20);
+    }
+}
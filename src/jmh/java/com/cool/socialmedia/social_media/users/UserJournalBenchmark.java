@@ -0,0 +1,70 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Journal appends from 8 writers under each fsync policy. With ALWAYS the
+ * writers share forces, so throughput should sit well above one fsync per
+ * write.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="UserJournalBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class UserJournalBenchmark {
+
+    @Param({ "ALWAYS", "INTERVAL", "NEVER" })
+    String fsync;
+
+    private final User user = new User(42, "John", LocalDate.of(1990, 1, 1));
+    private Path directory;
+    private UserJournal journal;
+
+    @Setup(Level.Iteration)
+    public void open() throws IOException {
+        directory = Files.createTempDirectory("user-journal");
+        journal = new UserJournal(directory.resolve("journal.log"),
+                UserJournal.FsyncPolicy.valueOf(fsync), 64 << 20);
+    }
+
+    @TearDown(Level.Iteration)
+    public void close() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        journal.save(user);
+    }
+}
@@ -0,0 +1,84 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Links for one GET /v3/users response: a self link per user plus the
+ * collection self link, built with linkTo(methodOn(...)) versus
+ * {@link UserLinks}. Request attributes are cleared on every operation so
+ * both sides pay their once-per-request base URI lookup.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="UserLinksBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserLinksBenchmark {
+
+    private static final LinkRelation ALL_USERS = LinkRelation.of("all-users");
+
+    @Param({ "1", "100" })
+    int users;
+
+    private final UserLinks userLinks = new UserLinks();
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void bindRequest() {
+        request = new MockHttpServletRequest("GET", "/v3/users");
+        request.setServerPort(8080);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @TearDown
+    public void unbindRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public void linkToMethodOn(Blackhole blackhole) {
+        request.clearAttributes();
+        for (int id = 1; id <= users; id++) {
+            blackhole.consume(linkTo(methodOn(UserResourcesV3.class).getUser(id, null)).withSelfRel());
+        }
+        blackhole.consume(linkTo(methodOn(UserResourcesV3.class).getAllUsers(null, null, null, null))
+                .withSelfRel().expand());
+        blackhole.consume(linkTo(methodOn(UserResourcesV3.class).getAllUsers(null, null, null, null))
+                .withRel("all-users").expand());
+    }
+
+    @Benchmark
+    public void cachedTemplates(Blackhole blackhole) {
+        request.clearAttributes();
+        for (int id = 1; id <= users; id++) {
+            blackhole.consume(userLinks.user(id));
+        }
+        blackhole.consume(userLinks.allUsers(IanaLinkRelations.SELF));
+        blackhole.consume(userLinks.allUsers(ALL_USERS));
+    }
+}
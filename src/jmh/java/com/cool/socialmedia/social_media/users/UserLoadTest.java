@@ -0,0 +1,176 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.cool.socialmedia.social_media.SocialMediaApplication;
+
+/**
+ * Closed-loop load test of the v1 API with slow persistence, run once on
+ * the Tomcat platform-thread pool and once on virtual threads.
+ *
+ * Each client loops GET /v1/users/{id} and, with probability
+ * {@code writes}, a create plus delete that each block on the simulated
+ * database latency. On platform threads the blocked writes exhaust the pool
+ * and reads queue behind them; on virtual threads they do not.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec
+ *     -Dbenchmark.main=com.cool.socialmedia.social_media.users.UserLoadTest
+ *     -Djmh.args="clients=1000 latency=50ms writes=0.2 duration=10s"
+ */
+public class UserLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        // devtools would relaunch main() in a restart class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        Map<String, String> options = new HashMap<>(Map.of(
+                "clients", "1000", "latency", "50ms", "writes", "0.2", "warmup", "3s", "duration", "10s"));
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        System.out.printf("clients=%s latency=%s writes=%s duration=%s%n", options.get("clients"),
+                options.get("latency"), options.get("writes"), options.get("duration"));
+        System.out.printf("%-9s %12s %10s %10s %10s %8s%n", "threads", "requests/s", "p50 ms", "p99 ms", "max ms",
+                "errors");
+        for (boolean virtual : new boolean[] { false, true }) {
+            run(virtual, options);
+        }
+        System.exit(0);
+    }
+
+    private static void run(boolean virtual, Map<String, String> options) throws Exception {
+        ConfigurableApplicationContext context = SpringApplication.run(SocialMediaApplication.class,
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--users.persistence.simulated-latency=" + options.get("latency"));
+        try {
+            String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            int clients = Integer.parseInt(options.get("clients"));
+            double writes = Double.parseDouble(options.get("writes"));
+
+            drive(base, clients, writes, DurationStyle.detectAndParse(options.get("warmup")));
+            Result result = drive(base, clients, writes, DurationStyle.detectAndParse(options.get("duration")));
+            System.out.printf("%-9s %12.0f %10.1f %10.1f %10.1f %8d%n", virtual ? "virtual" : "platform",
+                    result.requests() / result.seconds(), result.percentile(0.50), result.percentile(0.99),
+                    result.percentile(1.0), result.errors());
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Result drive(String base, int clients, double writes, Duration duration) throws Exception {
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        List<Future<long[]>> futures = new ArrayList<>(clients);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                futures.add(executor.submit(() -> {
+                    LatencyLog log = new LatencyLog();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        call(http, get(base + "/v1/users/" + (1 + random.nextInt(3))), 200, log, errors);
+                        if (random.nextDouble() < writes) {
+                            int id = 1_000_000 + random.nextInt(1_000_000_000);
+                            call(http, post(base + "/v1/users", id), 201, log, errors);
+                            call(http, delete(base + "/v1/users/" + id), 200, log, errors);
+                        }
+                    }
+                    return log.toArray();
+                }));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        List<long[]> logs = new ArrayList<>(clients);
+        for (Future<long[]> future : futures) {
+            logs.add(future.get());
+        }
+        long[] latencies = logs.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(latencies, seconds, errors.get());
+    }
+
+    private static void call(HttpClient http, HttpRequest request, int expected, LatencyLog log, AtomicLong errors) {
+        long started = System.nanoTime();
+        try {
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != expected) {
+                errors.incrementAndGet();
+            }
+        } catch (Exception e) {
+            errors.incrementAndGet();
+        }
+        log.add(System.nanoTime() - started);
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).build();
+    }
+
+    private static HttpRequest post(String uri, int id) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"id\":" + id + ",\"name\":\"load-" + id + "\",\"dob\":\"1990-01-01\"}"))
+                .build();
+    }
+
+    private static HttpRequest delete(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).DELETE().build();
+    }
+
+    private static final class LatencyLog {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private record Result(long[] latencies, double seconds, long errors) {
+
+        long requests() {
+            return latencies.length;
+        }
+
+        double percentile(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(p * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+    }
+}
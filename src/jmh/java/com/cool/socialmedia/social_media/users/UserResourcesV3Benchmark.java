@@ -0,0 +1,84 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.cool.socialmedia.social_media.config.MessageCatalog;
+
+/**
+ * V3 EntityModel and link building through the real controller methods,
+ * one fresh request per operation.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="UserResourcesV3Benchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserResourcesV3Benchmark {
+
+    @Param({ "10", "1000" })
+    int users;
+
+    private UserResourcesV3 controller;
+    private MockHttpServletRequest request;
+    private ServletWebRequest webRequest;
+
+    @Setup
+    public void setUp() {
+        UserDaoService userDaoService = new UserDaoService(UserPersistence.NONE, event -> {
+        });
+        List<User> batch = new ArrayList<>();
+        for (int id = 100; id < 100 + users; id++) {
+            batch.add(new User(id, "user-" + id, LocalDate.of(1990, 1, 1)));
+        }
+        userDaoService.saveAllIfAbsent(batch);
+        controller = new UserResourcesV3(userDaoService, new MessageCatalog(new StaticMessageSource(), Set.of(), List.of()), new UserLinks());
+
+        request = new MockHttpServletRequest("GET", "/v3/users");
+        request.setServerPort(8080);
+        webRequest = new ServletWebRequest(request);
+        RequestContextHolder.setRequestAttributes(webRequest);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public CollectionModel<EntityModel<User>> getAllUsers() {
+        request.clearAttributes();
+        return controller.getAllUsers(null, null, null, webRequest);
+    }
+
+    @Benchmark
+    public EntityModel<User> getUser() {
+        request.clearAttributes();
+        return controller.getUser(100, webRequest);
+    }
+}
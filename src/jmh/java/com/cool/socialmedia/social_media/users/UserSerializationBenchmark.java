@@ -0,0 +1,94 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+/**
+ * Jackson JSON, XML, CBOR and Smile serialization of a User list, written to
+ * a discarding stream so only encoding is measured. The payload size of
+ * each format is printed once per trial.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="UserSerializationBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserSerializationBenchmark {
+
+    @Param({ "10", "1000" })
+    int users;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final XmlMapper xmlMapper = XmlMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final CBORMapper cborMapper = CBORMapper.builder().build();
+    private final SmileMapper smileMapper = SmileMapper.builder().build();
+    private List<User> list;
+
+    @Setup
+    public void setUp() {
+        list = new ArrayList<>(users);
+        for (int id = 1; id <= users; id++) {
+            list.add(new User(id, "user-" + id, LocalDate.of(1990, 1, 1).plusDays(id)));
+        }
+        System.out.printf("%n%d users: json=%d xml=%d cbor=%d smile=%d bytes%n", users,
+                jsonMapper.writeValueAsBytes(list).length, xmlSize(),
+                cborMapper.writeValueAsBytes(list).length, smileMapper.writeValueAsBytes(list).length);
+    }
+
+    private int xmlSize() {
+        try {
+            return xmlMapper.writeValueAsBytes(list).length;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public void json() {
+        jsonMapper.writeValue(OutputStream.nullOutputStream(), list);
+    }
+
+    @Benchmark
+    public void xml() throws Exception {
+        xmlMapper.writeValue(OutputStream.nullOutputStream(), list);
+    }
+
+    @Benchmark
+    public void cbor() {
+        cborMapper.writeValue(OutputStream.nullOutputStream(), list);
+    }
+
+    @Benchmark
+    public void smile() {
+        smileMapper.writeValue(OutputStream.nullOutputStream(), list);
+    }
+}
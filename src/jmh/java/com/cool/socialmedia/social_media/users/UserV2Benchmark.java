@@ -0,0 +1,48 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of one V2 projection: the original per-object LocalDate.now(), a
+ * shared day clock, and the cached projection the controllers use.
+ *
+ * Run with: ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="UserV2Benchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserV2Benchmark {
+
+    private final User user = new User(1, "John", LocalDate.of(1990, 1, 1));
+    private final DayClock dayClock = new DayClock();
+    private final UserV2Projections projections = new UserV2Projections(dayClock);
+
+    @Benchmark
+    public UserV2 constructWithNow() {
+        return new UserV2(user);
+    }
+
+    @Benchmark
+    public UserV2 constructWithDayClock() {
+        return new UserV2(user, dayClock.today());
+    }
+
+    @Benchmark
+    public UserV2 cachedProjection() {
+        return projections.of(user);
+    }
+}
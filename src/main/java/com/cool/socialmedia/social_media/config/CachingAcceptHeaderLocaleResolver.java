@@ -0,0 +1,39 @@
+package com.cool.socialmedia.social_media.config;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.i18n.AcceptHeaderLocaleResolver;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * {@link AcceptHeaderLocaleResolver} that remembers the locale resolved for
+ * each distinct Accept-Language value, so repeated headers are not parsed
+ * again. At most {@link #MAX_ENTRIES} values are kept; others are resolved
+ * on every request as before.
+ */
+public class CachingAcceptHeaderLocaleResolver extends AcceptHeaderLocaleResolver {
+
+    static final int MAX_ENTRIES = 256;
+
+    private final ConcurrentMap<String, Locale> locales = new ConcurrentHashMap<>();
+
+    @Override
+    public Locale resolveLocale(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.ACCEPT_LANGUAGE);
+        if (header == null) {
+            return super.resolveLocale(request);
+        }
+        Locale locale = locales.get(header);
+        if (locale == null) {
+            locale = super.resolveLocale(request);
+            if (locales.size() < MAX_ENTRIES) {
+                locales.putIfAbsent(header, locale);
+            }
+        }
+        return locale;
+    }
+}
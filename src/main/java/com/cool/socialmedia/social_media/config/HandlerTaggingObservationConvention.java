@@ -0,0 +1,30 @@
+package com.cool.socialmedia.social_media.config;
+
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.common.KeyValues;
+
+/**
+ * Adds a {@code handler} tag, e.g. {@code UserResourcesV2.getUserByHeader},
+ * to {@code http.server.requests}. The uri tag alone cannot tell the param,
+ * header and media type variants apart, since every version shares their
+ * paths.
+ */
+public class HandlerTaggingObservationConvention extends DefaultServerRequestObservationConvention {
+
+    @Override
+    public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+        return super.getLowCardinalityKeyValues(context).and("handler", handler(context));
+    }
+
+    private static String handler(ServerRequestObservationContext context) {
+        Object handler = context.getCarrier().getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (handler instanceof HandlerMethod method) {
+            return method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+        }
+        return "none";
+    }
+}
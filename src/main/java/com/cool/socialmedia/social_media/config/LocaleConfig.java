@@ -1,19 +1,41 @@
 package com.cool.socialmedia.social_media.config;
 
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.web.servlet.LocaleResolver;
-import org.springframework.web.servlet.i18n.AcceptHeaderLocaleResolver;
 
 @Configuration
 public class LocaleConfig {
 
     @Bean
     public LocaleResolver localeResolver() {
-        AcceptHeaderLocaleResolver localeResolver = new AcceptHeaderLocaleResolver();
+        CachingAcceptHeaderLocaleResolver localeResolver = new CachingAcceptHeaderLocaleResolver();
         localeResolver.setDefaultLocale(Locale.US);
         return localeResolver;
     }
+
+    /**
+     * Every message code in the default bundles, preloaded for the default
+     * locale and the bundled translations (messages_fr, messages_hi).
+     */
+    @Bean
+    public MessageCatalog messageCatalog(MessageSource messageSource,
+            @Value("${spring.messages.basename:messages}") String basenames) throws IOException {
+        Set<String> codes = new LinkedHashSet<>();
+        for (String basename : StringUtils.commaDelimitedListToStringArray(basenames)) {
+            String path = basename.trim().replace('.', '/') + ".properties";
+            codes.addAll(PropertiesLoaderUtils.loadAllProperties(path).stringPropertyNames());
+        }
+        return new MessageCatalog(messageSource, codes, List.of(Locale.US, Locale.FRENCH, Locale.of("hi")));
+    }
 }
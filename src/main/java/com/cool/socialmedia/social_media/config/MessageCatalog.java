@@ -0,0 +1,94 @@
+package com.cool.socialmedia.social_media.config;
+
+import java.text.MessageFormat;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.context.MessageSource;
+import org.springframework.context.i18n.LocaleContextHolder;
+
+/**
+ * Localized messages resolved once per locale instead of on every call.
+ *
+ * The templates come from the application {@link MessageSource}, so bundle
+ * fallback works exactly as before; each is then kept with its compiled
+ * {@link MessageFormat}. Like the MessageSource, a message is returned
+ * verbatim when it has no arguments and formatted otherwise, so the output
+ * is unchanged. The supported locales are loaded at startup; other locales
+ * are added on first use, up to {@link #MAX_LOCALES}, after which calls go
+ * straight to the MessageSource.
+ */
+public class MessageCatalog {
+
+    static final int MAX_LOCALES = 32;
+
+    private final MessageSource messageSource;
+    private final Set<String> codes;
+    private final ConcurrentMap<Locale, Map<String, Template>> catalogs = new ConcurrentHashMap<>();
+
+    public MessageCatalog(MessageSource messageSource, Set<String> codes, Collection<Locale> locales) {
+        this.messageSource = messageSource;
+        this.codes = Set.copyOf(codes);
+        for (Locale locale : locales) {
+            catalogs.put(locale, load(locale));
+        }
+    }
+
+    /**
+     * The message for the current request's locale.
+     */
+    public String get(String code, Object... args) {
+        return get(code, args, LocaleContextHolder.getLocale());
+    }
+
+    public String get(String code, Object[] args, Locale locale) {
+        Map<String, Template> catalog = catalogs.get(locale);
+        if (catalog == null && catalogs.size() < MAX_LOCALES) {
+            catalog = catalogs.computeIfAbsent(locale, this::load);
+        }
+        Template template = catalog == null ? null : catalog.get(code);
+        if (template == null) {
+            return messageSource.getMessage(code, args, locale);
+        }
+        return template.format(args);
+    }
+
+    private Map<String, Template> load(Locale locale) {
+        Map<String, Template> catalog = new HashMap<>();
+        for (String code : codes) {
+            // Without arguments the MessageSource returns the raw template.
+            String text = messageSource.getMessage(code, null, locale);
+            catalog.put(code, new Template(text, compile(text, locale), locale));
+        }
+        return Map.copyOf(catalog);
+    }
+
+    private static MessageFormat compile(String text, Locale locale) {
+        try {
+            return new MessageFormat(text, locale);
+        } catch (IllegalArgumentException e) {
+            // Only fails once the message is used with arguments, as before.
+            return null;
+        }
+    }
+
+    private record Template(String text, MessageFormat format, Locale locale) {
+
+        String format(Object[] args) {
+            if (args == null || args.length == 0) {
+                return text;
+            }
+            if (format == null) {
+                return new MessageFormat(text, locale).format(args);
+            }
+            // MessageFormat is not thread-safe; a clone shares the parsed
+            // pattern, so no caller has to wait on another.
+            return ((MessageFormat) format.clone()).format(args);
+        }
+    }
+}
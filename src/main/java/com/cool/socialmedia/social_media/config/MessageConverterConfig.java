@@ -0,0 +1,89 @@
+package com.cool.socialmedia.social_media.config;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.http.converter.autoconfigure.ServerHttpMessageConvertersCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.JacksonCborHttpMessageConverter;
+import org.springframework.http.converter.smile.JacksonSmileHttpMessageConverter;
+
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.MapperFeature;
+import tools.jackson.databind.SerializationConfig;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.cfg.DatatypeFeature;
+import tools.jackson.databind.cfg.DateTimeFeature;
+import tools.jackson.databind.cfg.EnumFeature;
+import tools.jackson.databind.cfg.JsonNodeFeature;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+/**
+ * Binary representations for service-to-service calls, next to JSON and
+ * XML: CBOR (application/cbor) and Smile (application/x-jackson-smile).
+ * Both also accept structured-suffix vendor types, so the media type
+ * versioned endpoints can serve e.g. application/vnd.socialmedia.app-v1+cbor
+ * or application/vnd.socialmedia.app-v2+smile.
+ *
+ * They are registered in their well-known slots rather than as converter
+ * beans, which would be put ahead of JSON and win {@code Accept: *}{@code /*}.
+ * CBOR uses Boot's configured {@link CBORMapper}; Boot has no Smile mapper,
+ * so {@link #smileMapper(JsonMapper)} copies the JSON mapper's settings.
+ */
+@Configuration
+public class MessageConverterConfig {
+
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    /**
+     * A Smile mapper with the same modules, features, naming, inclusion,
+     * visibility, locale, time zone and date format as the application's
+     * JSON mapper, and so the same spring.jackson.* settings.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public SmileMapper smileMapper(JsonMapper jsonMapper) {
+        SerializationConfig config = jsonMapper.serializationConfig();
+        SmileMapper.Builder builder = SmileMapper.builder()
+                .addModules(jsonMapper.registeredModules())
+                .propertyNamingStrategy(config.getPropertyNamingStrategy())
+                .changeDefaultPropertyInclusion(inclusion -> config.getDefaultPropertyInclusion())
+                .changeDefaultVisibility(visibility -> config.getDefaultVisibilityChecker())
+                .constructorDetector(jsonMapper.deserializationConfig().getConstructorDetector())
+                .defaultLocale(config.getLocale())
+                .defaultDateFormat(config.getDateFormat());
+        if (config.hasExplicitTimeZone()) {
+            builder.defaultTimeZone(config.getTimeZone());
+        }
+        for (MapperFeature feature : MapperFeature.values()) {
+            builder.configure(feature, jsonMapper.isEnabled(feature));
+        }
+        for (SerializationFeature feature : SerializationFeature.values()) {
+            builder.configure(feature, jsonMapper.isEnabled(feature));
+        }
+        for (DeserializationFeature feature : DeserializationFeature.values()) {
+            builder.configure(feature, jsonMapper.isEnabled(feature));
+        }
+        for (List<? extends DatatypeFeature> features : List.of(List.of(DateTimeFeature.values()),
+                List.of(EnumFeature.values()), List.of(JsonNodeFeature.values()))) {
+            for (DatatypeFeature feature : features) {
+                builder.configure(feature, jsonMapper.isEnabled(feature));
+            }
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public ServerHttpMessageConvertersCustomizer binaryHttpMessageConverters(CBORMapper cborMapper,
+            SmileMapper smileMapper) {
+        JacksonCborHttpMessageConverter cbor = new JacksonCborHttpMessageConverter(cborMapper);
+        cbor.setSupportedMediaTypes(List.of(MediaType.APPLICATION_CBOR, new MediaType("application", "*+cbor")));
+        JacksonSmileHttpMessageConverter smile = new JacksonSmileHttpMessageConverter(smileMapper);
+        smile.setSupportedMediaTypes(List.of(APPLICATION_SMILE, new MediaType("application", "*+smile")));
+        return builder -> builder.withCborConverter(cbor).withSmileConverter(smile);
+    }
+}
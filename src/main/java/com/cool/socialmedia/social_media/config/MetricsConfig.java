@@ -0,0 +1,32 @@
+package com.cool.socialmedia.social_media.config;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-endpoint metrics on top of Boot's {@code http.server.requests}; the
+ * store's own meters live in UserDaoMetrics. Browse them at
+ * /actuator/metrics, e.g. /actuator/metrics/http.server.requests?tag=handler:UserResourcesV3.getUser
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public HandlerTaggingObservationConvention handlerTaggingObservationConvention() {
+        return new HandlerTaggingObservationConvention();
+    }
+
+    @Bean
+    public FilterRegistrationBean<ResponseSizeFilter> responseSizeFilter(MeterRegistry meterRegistry) {
+        FilterRegistrationBean<ResponseSizeFilter> registration = new FilterRegistrationBean<>(
+                new ResponseSizeFilter(meterRegistry));
+        // Outermost, so the count includes whatever inner filters write.
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        registration.setAsyncSupported(true);
+        return registration;
+    }
+}
@@ -0,0 +1,44 @@
+package com.cool.socialmedia.social_media.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.cool.socialmedia.social_media.users.SlowUserPersistence;
+import com.cool.socialmedia.social_media.users.UserPersistence;
+
+@Configuration
+public class PersistenceConfig {
+
+    /**
+     * Default backend: users live only in memory. Set users.persistence=jpa
+     * (or run with the jpa profile) to persist them to H2 instead.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "users.persistence", havingValue = "none", matchIfMissing = true)
+    public UserPersistence inMemoryUserPersistence() {
+        return UserPersistence.NONE;
+    }
+
+    /**
+     * With users.persistence.simulated-latency set, every write to the
+     * backend first blocks for that long, whichever backend is active.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "users.persistence.simulated-latency")
+    public static BeanPostProcessor slowUserPersistencePostProcessor(Environment environment) {
+        Duration latency = environment.getRequiredProperty("users.persistence.simulated-latency", Duration.class);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof UserPersistence persistence && !latency.isZero()
+                        ? new SlowUserPersistence(persistence, latency)
+                        : bean;
+            }
+        };
+    }
+}
@@ -1,13 +1,20 @@
 package com.cool.socialmedia.social_media.exception;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 
 import org.springframework.core.env.Environment;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 import org.springframework.http.HttpHeaders;
@@ -18,49 +25,94 @@ import jakarta.validation.ConstraintViolationException;
 @ControllerAdvice
 public class CustomizedResponseEntityExceptionHandler extends ResponseEntityExceptionHandler {
 
-    private final Environment environment;
+    // Active profiles are fixed once the context is up.
+    private final boolean isDev;
 
     public CustomizedResponseEntityExceptionHandler(Environment environment) {
-        this.environment = environment;
+        this.isDev = Arrays.asList(environment.getActiveProfiles()).contains("dev");
     }
 
-    @ExceptionHandler(Exception.class)
-    public final ResponseEntity<ErrorDetails> handleAllExceptions(Exception ex, WebRequest request) {
-        String[] activeProfiles = environment.getActiveProfiles();
-        boolean isDev = false;
-        for (String profile : activeProfiles) {
-            if ("dev".equals(profile)) {
-                isDev = true;
+    /**
+     * Same ProblemDetail body the ResponseStatusException handler would
+     * write. For JSON it is built from a per-status template instead of
+     * through message resolution and the JSON converter; clients preferring
+     * XML get the ProblemDetail written as problem+xml.
+     */
+    @ExceptionHandler(StacklessResponseStatusException.class)
+    public final ResponseEntity<Object> handleStacklessResponseStatusException(StacklessResponseStatusException ex,
+            WebRequest request) throws Exception {
+        MediaType type = request instanceof ServletWebRequest servletRequest
+                ? problemType(servletRequest.getRequest().getHeader(HttpHeaders.ACCEPT))
+                : null;
+        if (MediaType.APPLICATION_PROBLEM_JSON.equals(type) && ex.getReason() != null) {
+            byte[] body = ProblemBodies.of(ex.getStatusCode().value(), ex.getReason(),
+                    ((ServletWebRequest) request).getRequest().getRequestURI());
+            if (body != null) {
+                return ResponseEntity.status(ex.getStatusCode()).contentType(type).body(body);
             }
         }
+        ResponseEntity<Object> problem = handleException(ex, request);
+        if (MediaType.APPLICATION_PROBLEM_XML.equals(type) && problem != null) {
+            // The XML converter only offers problem+xml for a ProblemDetail,
+            // so plain application/xml would otherwise negotiate to JSON.
+            return ResponseEntity.status(problem.getStatusCode()).headers(problem.getHeaders())
+                    .contentType(type).body(problem.getBody());
+        }
+        return problem;
+    }
 
-        ErrorDetails errorDetails;
-        HttpStatus status = HttpStatus.INTERNAL_SERVER_ERROR;
-
-        if (ex instanceof org.springframework.web.server.ResponseStatusException) {
-            status = HttpStatus
-                    .resolve(((org.springframework.web.server.ResponseStatusException) ex).getStatusCode().value());
-        } else if (ex instanceof jakarta.validation.ConstraintViolationException) {
-            status = HttpStatus.BAD_REQUEST;
+    // The problem type for the client's most preferred media type:
+    // problem+json for JSON and wildcards, as the JSON converter comes
+    // first, problem+xml for XML, and null for anything else.
+    static MediaType problemType(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_PROBLEM_JSON;
+        }
+        List<MediaType> types;
+        try {
+            types = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
         }
+        MimeTypeUtils.sortBySpecificity(types);
+        for (MediaType type : types) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_PROBLEM_JSON)
+                    || type.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return MediaType.APPLICATION_PROBLEM_JSON;
+            }
+            if (type.isCompatibleWith(MediaType.APPLICATION_PROBLEM_XML)
+                    || type.isCompatibleWith(MediaType.APPLICATION_XML) || type.isCompatibleWith(MediaType.TEXT_XML)) {
+                return MediaType.APPLICATION_PROBLEM_XML;
+            }
+            return null;
+        }
+        return null;
+    }
+
+    @ExceptionHandler(Exception.class)
+    public final ResponseEntity<ErrorDetails> handleAllExceptions(Exception ex, WebRequest request) {
+        HttpStatus status = switch (ex) {
+            case ResponseStatusException statusException -> HttpStatus.resolve(statusException.getStatusCode().value());
+            case ConstraintViolationException violations -> HttpStatus.BAD_REQUEST;
+            default -> HttpStatus.INTERNAL_SERVER_ERROR;
+        };
 
+        ErrorDetails errorDetails;
         if (isDev) {
             // Show trace, error, path only when it's mode dev
             errorDetails = new ErrorDetails(LocalDateTime.now(),
                     ex.getMessage(), request.getDescription(true));
         } else {
             // Good error message for the prod configuration
-            if (ex instanceof org.springframework.web.server.ResponseStatusException) {
-                errorDetails = new ErrorDetails(LocalDateTime.now(),
-                        ((org.springframework.web.server.ResponseStatusException) ex).getReason(),
-                        request.getDescription(false));
-            } else if (ex instanceof jakarta.validation.ConstraintViolationException) {
-                errorDetails = new ErrorDetails(LocalDateTime.now(),
-                        "Validation Failed: " + ex.getMessage(), request.getDescription(false));
-            } else {
-                errorDetails = new ErrorDetails(LocalDateTime.now(),
-                        "An unexpected error occurred. Please contact support.", request.getDescription(false));
-            }
+            String message = switch (ex) {
+                case ResponseStatusException statusException -> statusException.getReason();
+                case ConstraintViolationException violations -> "Validation Failed: " + violations.getMessage();
+                default -> "An unexpected error occurred. Please contact support.";
+            };
+            errorDetails = new ErrorDetails(LocalDateTime.now(), message, request.getDescription(false));
         }
 
         return new ResponseEntity<>(errorDetails, status);
@@ -0,0 +1,61 @@
+package com.cool.socialmedia.social_media.exception;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.springframework.http.HttpStatus;
+
+import tools.jackson.core.io.JsonStringEncoder;
+
+/**
+ * Pre-serialized ProblemDetail bodies, one template per status.
+ *
+ * A body has the same fields, order and escaping as Jackson writes for a
+ * {@link org.springframework.http.ProblemDetail} holding a detail and an
+ * instance, so only the two strings are encoded per response.
+ */
+final class ProblemBodies {
+
+    private static final byte[] DETAIL = "{\"detail\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] INSTANCE = "\",\"instance\":\"".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[][] SUFFIXES = new byte[600][];
+
+    static {
+        for (int value = 100; value < SUFFIXES.length; value++) {
+            // Same title ProblemDetail.forStatus picks for the code; reason
+            // phrases are plain ASCII and need no escaping.
+            HttpStatus status = HttpStatus.resolve(value);
+            if (status != null) {
+                SUFFIXES[value] = ("\",\"status\":" + value + ",\"title\":\"" + status.getReasonPhrase() + "\"}")
+                        .getBytes(StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    private ProblemBodies() {
+    }
+
+    /**
+     * @return the body, or null if the status has no standard reason phrase
+     */
+    static byte[] of(int status, String detail, String instance) {
+        byte[] suffix = status < SUFFIXES.length ? SUFFIXES[status] : null;
+        if (suffix == null) {
+            return null;
+        }
+        byte[] quotedDetail = JsonStringEncoder.getInstance().quoteAsUTF8(detail);
+        byte[] quotedInstance = JsonStringEncoder.getInstance().quoteAsUTF8(instance);
+        byte[] body = Arrays.copyOf(DETAIL,
+                DETAIL.length + quotedDetail.length + INSTANCE.length + quotedInstance.length + suffix.length);
+        int offset = DETAIL.length;
+        System.arraycopy(quotedDetail, 0, body, offset, quotedDetail.length);
+        offset += quotedDetail.length;
+        System.arraycopy(INSTANCE, 0, body, offset, INSTANCE.length);
+        offset += INSTANCE.length;
+        System.arraycopy(quotedInstance, 0, body, offset, quotedInstance.length);
+        offset += quotedInstance.length;
+        System.arraycopy(suffix, 0, body, offset, suffix.length);
+        return body;
+    }
+}
@@ -0,0 +1,24 @@
+package com.cool.socialmedia.social_media.exception;
+
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * ResponseStatusException for expected client errors such as an unknown or
+ * duplicate id. These are thrown often and never logged with a trace, so
+ * the stack is not captured.
+ *
+ * {@link CustomizedResponseEntityExceptionHandler} answers JSON clients
+ * from a pre-serialized body, see {@link ProblemBodies}.
+ */
+public class StacklessResponseStatusException extends ResponseStatusException {
+
+    public StacklessResponseStatusException(HttpStatusCode status, String reason) {
+        super(status, reason);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
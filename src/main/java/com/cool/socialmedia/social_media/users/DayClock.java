@@ -0,0 +1,48 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Today's date that only changes at midnight.
+ *
+ * Callers get the same LocalDate instance for the whole day, and checking
+ * for the next day costs one clock read and a comparison, so per-user age
+ * calculations no longer call LocalDate.now().
+ */
+@Component
+public class DayClock {
+
+    private final Clock clock;
+    private volatile Day current;
+
+    public DayClock() {
+        this(Clock.systemDefaultZone());
+    }
+
+    DayClock(Clock clock) {
+        this.clock = clock;
+        this.current = dayOf(clock);
+    }
+
+    public LocalDate today() {
+        Day day = current;
+        if (clock.millis() >= day.endMillis()) {
+            day = dayOf(clock);
+            current = day;
+        }
+        return day.date();
+    }
+
+    private static Day dayOf(Clock clock) {
+        LocalDate date = LocalDate.now(clock);
+        ZonedDateTime nextMidnight = date.plusDays(1).atStartOfDay(clock.getZone());
+        return new Day(date, nextMidnight.toInstant().toEpochMilli());
+    }
+
+    private record Day(LocalDate date, long endMillis) {
+    }
+}
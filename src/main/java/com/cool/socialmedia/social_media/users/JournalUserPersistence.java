@@ -0,0 +1,222 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Persists users to a local write-ahead journal plus periodic snapshots.
+ *
+ * Every write is appended to the current {@link UserJournal} generation.
+ * A snapshot rolls the journal to a new generation, replays the previous
+ * snapshot and the journals up to the roll into {@code
+ * snapshot-<generation>.bin}, and then deletes the older journals and
+ * snapshots. It is built from the files alone, never from memory, which may
+ * still hold writes whose append is about to fail and be rolled back. On startup the latest snapshot is loaded and every journal
+ * from its generation on is replayed, so recovery time is bounded by
+ * {@code users.journal.snapshot-interval}; it is logged on every start.
+ *
+ * Enabled with {@code users.persistence=journal}, see
+ * application-journal.properties.
+ */
+@Component
+@ConditionalOnProperty(name = "users.persistence", havingValue = "journal")
+public class JournalUserPersistence implements UserPersistence, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalUserPersistence.class);
+
+    private final Path directory;
+    private final UserJournal.FsyncPolicy fsyncPolicy;
+    private final int regionSize;
+
+    // Writers share the read lock; rolling to a new journal takes the write
+    // lock so no append can land in a journal that is being closed.
+    private final ReentrantReadWriteLock rollLock = new ReentrantReadWriteLock();
+    private volatile UserJournal journal;
+    private long generation;
+    private boolean replayedJournals;
+    private List<User> recovered;
+
+    public JournalUserPersistence(
+            @Value("${users.journal.directory:./data/journal}") Path directory,
+            @Value("${users.journal.fsync:always}") UserJournal.FsyncPolicy fsyncPolicy,
+            @Value("${users.journal.region-size:64MB}") DataSize regionSize) throws IOException {
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.regionSize = Math.toIntExact(regionSize.toBytes());
+        Files.createDirectories(directory);
+        recover();
+        this.journal = new UserJournal(journalFile(generation), fsyncPolicy, this.regionSize);
+    }
+
+    @Override
+    public List<User> loadAll() {
+        List<User> users = recovered;
+        recovered = null;
+        return users == null ? List.of() : users;
+    }
+
+    @Override
+    public void insert(User user) {
+        save(user);
+    }
+
+    @Override
+    public void insertAll(Collection<User> users) {
+        write(current -> current.saveAll(users));
+    }
+
+    @Override
+    public void save(User user) {
+        write(current -> current.save(user));
+    }
+
+    @Override
+    public void delete(Integer id) {
+        write(current -> current.delete(id));
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        write(current -> current.deleteAll(ids));
+    }
+
+    @Scheduled(fixedDelayString = "${users.journal.fsync-interval:1s}")
+    public void forceJournal() {
+        if (fsyncPolicy == UserJournal.FsyncPolicy.INTERVAL) {
+            write(UserJournal::force);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${users.journal.snapshot-interval:5m}",
+            initialDelayString = "${users.journal.snapshot-interval:5m}")
+    public void snapshot() throws IOException {
+        if (!replayedJournals && journal.size() == 0) {
+            return;
+        }
+        long started = System.nanoTime();
+        UserJournal previous;
+        long snapshotGeneration;
+        rollLock.writeLock().lock();
+        try {
+            previous = journal;
+            snapshotGeneration = ++generation;
+            journal = new UserJournal(journalFile(snapshotGeneration), fsyncPolicy, regionSize);
+        } finally {
+            rollLock.writeLock().unlock();
+        }
+        previous.close();
+
+        // Every append before the roll is in the closed journals, and
+        // anything newer is replayed from the new journal on top.
+        Map<Integer, User> users = new HashMap<>();
+        NavigableMap<Long, Path> snapshots = files("snapshot-", ".bin").headMap(snapshotGeneration, false);
+        long from = 0;
+        if (!snapshots.isEmpty()) {
+            from = snapshots.lastKey();
+            UserSnapshot.read(snapshots.lastEntry().getValue(), users);
+        }
+        for (Path file : files("journal-", ".log").subMap(from, true, snapshotGeneration, false).values()) {
+            UserJournal.replay(file, users);
+        }
+        long count = UserSnapshot.write(snapshotFile(snapshotGeneration), users.values().stream());
+        for (Map.Entry<Long, Path> old : files("journal-", ".log").headMap(snapshotGeneration).entrySet()) {
+            Files.deleteIfExists(old.getValue());
+        }
+        for (Map.Entry<Long, Path> old : files("snapshot-", ".bin").headMap(snapshotGeneration).entrySet()) {
+            Files.deleteIfExists(old.getValue());
+        }
+        replayedJournals = false;
+        log.info("Wrote user snapshot {} with {} users in {} ms", snapshotGeneration, count,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        rollLock.writeLock().lock();
+        try {
+            journal.close();
+        } finally {
+            rollLock.writeLock().unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        long started = System.nanoTime();
+        Map<Integer, User> users = new HashMap<>();
+        TreeMap<Long, Path> snapshots = files("snapshot-", ".bin");
+        long from = 0;
+        if (!snapshots.isEmpty()) {
+            from = snapshots.lastKey();
+            UserSnapshot.read(snapshots.lastEntry().getValue(), users);
+        }
+        int fromSnapshot = users.size();
+        long records = 0;
+        TreeMap<Long, Path> journals = files("journal-", ".log");
+        for (Path file : journals.tailMap(from, true).values()) {
+            records += UserJournal.replay(file, users);
+        }
+        replayedJournals = !journals.isEmpty();
+        generation = Math.max(from, journals.isEmpty() ? 0 : journals.lastKey()) + 1;
+        recovered = new ArrayList<>(users.values());
+        log.info("Recovered {} users ({} from snapshot {}, {} journal records) in {} ms, fsync={}",
+                recovered.size(), fromSnapshot, from, records, (System.nanoTime() - started) / 1_000_000,
+                fsyncPolicy);
+    }
+
+    private void write(JournalWrite write) {
+        rollLock.readLock().lock();
+        try {
+            write.apply(journal);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            rollLock.readLock().unlock();
+        }
+    }
+
+    private TreeMap<Long, Path> files(String prefix, String suffix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (Stream<Path> list = Files.list(directory)) {
+            list.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                    files.put(Long.parseLong(name, prefix.length(), name.length() - suffix.length(), 10), file);
+                }
+            });
+        }
+        return files;
+    }
+
+    private Path journalFile(long generation) {
+        return directory.resolve(String.format("journal-%016d.log", generation));
+    }
+
+    private Path snapshotFile(long generation) {
+        return directory.resolve(String.format("snapshot-%016d.bin", generation));
+    }
+
+    @FunctionalInterface
+    private interface JournalWrite {
+        void apply(UserJournal journal) throws IOException;
+    }
+}
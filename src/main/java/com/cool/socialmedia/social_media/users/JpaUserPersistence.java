@@ -0,0 +1,95 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Persists users to the configured JPA datasource (H2 by default).
+ *
+ * Ids are assigned before the insert, never by the database, so Hibernate
+ * can group inserts into JDBC batches of {@code hibernate.jdbc.batch_size}.
+ * Enabled with {@code users.persistence=jpa}, see application-jpa.properties.
+ */
+@Component
+@ConditionalOnProperty(name = "users.persistence", havingValue = "jpa")
+public class JpaUserPersistence implements UserPersistence {
+
+    private final UserRepository userRepository;
+    private final int batchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public JpaUserPersistence(UserRepository userRepository,
+            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.userRepository = userRepository;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<User> loadAll() {
+        return userRepository.findAll();
+    }
+
+    @Override
+    @Transactional
+    public void insert(User user) {
+        entityManager.persist(user);
+    }
+
+    @Override
+    @Transactional
+    public void insertAll(Collection<User> users) {
+        int pending = 0;
+        for (User user : users) {
+            entityManager.persist(user);
+            if (++pending == batchSize) {
+                // Flush a full JDBC batch and drop it from the persistence
+                // context so large imports do not grow the session.
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+    }
+
+    @Override
+    @Transactional
+    public void save(User user) {
+        entityManager.merge(user);
+    }
+
+    @Override
+    @Transactional
+    public void delete(Integer id) {
+        userRepository.deleteAllByIdInBatch(List.of(id));
+    }
+
+    @Override
+    @Transactional
+    public void deleteAll(Collection<Integer> ids) {
+        // Keep each IN list to one batch so huge purges do not hit the
+        // driver's parameter limit.
+        List<Integer> chunk = new ArrayList<>(Math.min(ids.size(), batchSize));
+        for (Integer id : ids) {
+            chunk.add(id);
+            if (chunk.size() == batchSize) {
+                userRepository.deleteAllByIdInBatch(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            userRepository.deleteAllByIdInBatch(chunk);
+        }
+    }
+}
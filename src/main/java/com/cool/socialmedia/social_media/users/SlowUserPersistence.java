@@ -0,0 +1,65 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Wraps a backend and blocks for a fixed latency before every call, to
+ * rehearse a slow database. Enabled with
+ * {@code users.persistence.simulated-latency}.
+ */
+public class SlowUserPersistence implements UserPersistence {
+
+    private final UserPersistence delegate;
+    private final Duration latency;
+
+    public SlowUserPersistence(UserPersistence delegate, Duration latency) {
+        this.delegate = delegate;
+        this.latency = latency;
+    }
+
+    @Override
+    public List<User> loadAll() {
+        return delegate.loadAll();
+    }
+
+    @Override
+    public void insert(User user) {
+        pause();
+        delegate.insert(user);
+    }
+
+    @Override
+    public void insertAll(Collection<User> users) {
+        pause();
+        delegate.insertAll(users);
+    }
+
+    @Override
+    public void save(User user) {
+        pause();
+        delegate.save(user);
+    }
+
+    @Override
+    public void delete(Integer id) {
+        pause();
+        delegate.delete(id);
+    }
+
+    @Override
+    public void deleteAll(Collection<Integer> ids) {
+        pause();
+        delegate.deleteAll(ids);
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during simulated persistence latency", e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.util.Map;
+
+import org.springframework.hateoas.server.core.Relation;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+
+/**
+ * The subset of a user's properties picked by {@code fields=}; see
+ * {@link UserFields}. Embedded under the same HAL relation as {@link User}.
+ */
+@Relation(itemRelation = "user", collectionRelation = "userList")
+public final class SparseUser {
+
+    private final Map<String, Object> properties;
+
+    SparseUser(Map<String, Object> properties) {
+        this.properties = properties;
+    }
+
+    @JsonAnyGetter
+    public Map<String, Object> getProperties() {
+        return properties;
+    }
+}
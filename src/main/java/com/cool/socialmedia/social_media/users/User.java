@@ -2,11 +2,21 @@ package com.cool.socialmedia.social_media.users;
 
 import java.time.LocalDate;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import jakarta.validation.constraints.Past;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 
+@Entity
+@Table(name = "users", indexes = @Index(name = "idx_users_name", columnList = "name"))
 public class User {
+    @Id
     @Positive(message = "ID must be positive")
     private Integer id;
 
@@ -16,6 +26,11 @@ public class User {
     @Past(message = "Birth Date should be in the past")
     private LocalDate dob;
 
+    // Assigned by UserDaoService on every write; backs the ETags.
+    @Transient
+    @JsonIgnore
+    private long version;
+
     public User() {
     }
 
@@ -48,4 +63,12 @@ public class User {
     public void setDob(LocalDate dob) {
         this.dob = dob;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,167 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maintains {@link UserStats} incrementally from {@link UserEvent}s.
+ *
+ * Users are counted per date of birth and per age. A write moves one user
+ * between counters, so it costs O(1) whatever the store size. Ages only
+ * change at midnight; the first call after {@link DayClock} rolls over
+ * rebuilds the age histogram from the date-of-birth counts. It does not
+ * rescan the store. Reads cost O(distinct ages) at most, and the computed
+ * stats are reused until the next write or the next day.
+ *
+ * Events carry the user an update replaced, and counters are additive, so
+ * the result is exact even when events for one id arrive out of order.
+ */
+@Component
+public class UserAgeStatistics {
+
+    private static final int[] BUCKET_STARTS = { 0, 18, 25, 35, 45, 55, 65 };
+
+    private final DayClock dayClock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, Long> byDob = new HashMap<>();
+    private long[] byAge = new long[128];
+    private long total;
+    private long unknownAge;
+    private long version;
+    private LocalDate day;
+    private volatile UserStats cached;
+
+    public UserAgeStatistics(UserDaoService userDaoService, DayClock dayClock) {
+        this.dayClock = dayClock;
+        this.day = dayClock.today();
+        try (Stream<User> users = userDaoService.streamAll()) {
+            users.forEach(user -> count(user, 1));
+        }
+    }
+
+    @EventListener
+    public void onUserEvent(UserEvent event) {
+        lock.lock();
+        try {
+            rollOver(dayClock.today());
+            switch (event.type()) {
+                case CREATED -> count(event.user(), 1);
+                case UPDATED -> {
+                    count(event.previous(), -1);
+                    count(event.user(), 1);
+                }
+                case DELETED -> count(event.user(), -1);
+            }
+            version++;
+            cached = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public UserStats stats() {
+        LocalDate today = dayClock.today();
+        UserStats stats = cached;
+        if (stats != null && stats.day().equals(today)) {
+            return stats;
+        }
+        lock.lock();
+        try {
+            rollOver(today);
+            stats = compute();
+            cached = stats;
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void count(User user, long delta) {
+        if (user == null) {
+            return;
+        }
+        total += delta;
+        LocalDate dob = user.getDob();
+        if (dob == null) {
+            unknownAge += delta;
+            return;
+        }
+        byDob.merge(dob.toEpochDay(), delta, (a, b) -> a + b == 0 ? null : a + b);
+        countAge(ageOf(dob, day), delta);
+    }
+
+    private void countAge(int age, long delta) {
+        if (age >= byAge.length) {
+            byAge = Arrays.copyOf(byAge, Math.max(age + 1, byAge.length * 2));
+        }
+        byAge[age] += delta;
+    }
+
+    private void rollOver(LocalDate today) {
+        if (today.equals(day)) {
+            return;
+        }
+        day = today;
+        Arrays.fill(byAge, 0);
+        byDob.forEach((dob, users) -> countAge(ageOf(LocalDate.ofEpochDay(dob), today), users));
+        cached = null;
+    }
+
+    private UserStats compute() {
+        long known = total - unknownAge;
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int b = 0; b < BUCKET_STARTS.length; b++) {
+            buckets.put(bucketName(b), 0L);
+        }
+        Integer min = null;
+        Integer max = null;
+        int lowerMedian = -1;
+        int upperMedian = -1;
+        long seen = 0;
+        int bucket = 0;
+        for (int age = 0; age < byAge.length; age++) {
+            long users = byAge[age];
+            if (users == 0) {
+                continue;
+            }
+            if (min == null) {
+                min = age;
+            }
+            max = age;
+            while (bucket + 1 < BUCKET_STARTS.length && age >= BUCKET_STARTS[bucket + 1]) {
+                bucket++;
+            }
+            buckets.merge(bucketName(bucket), users, Long::sum);
+            // 0-based positions of the middle user(s) in age order.
+            if (lowerMedian < 0 && seen + users > (known - 1) / 2) {
+                lowerMedian = age;
+            }
+            if (upperMedian < 0 && seen + users > known / 2) {
+                upperMedian = age;
+            }
+            seen += users;
+        }
+        Double median = known == 0 ? null : (lowerMedian + upperMedian) / 2.0;
+        return new UserStats(total, unknownAge, min, max, median, buckets, day, version);
+    }
+
+    private static String bucketName(int bucket) {
+        return bucket + 1 == BUCKET_STARTS.length
+                ? BUCKET_STARTS[bucket] + "+"
+                : BUCKET_STARTS[bucket] + "-" + (BUCKET_STARTS[bucket + 1] - 1);
+    }
+
+    // Same age as UserV2; a date of birth in the future counts as age 0.
+    private static int ageOf(LocalDate dob, LocalDate today) {
+        return Math.max(0, Period.between(dob, today).getYears());
+    }
+}
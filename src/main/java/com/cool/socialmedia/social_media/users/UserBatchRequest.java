@@ -0,0 +1,18 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Body of {@code POST /v1/users:batchGet} and {@code :batchDelete}.
+ */
+public record UserBatchRequest(
+        @NotEmpty(message = "ids must not be empty")
+        @Size(max = UserBatchRequest.MAX_IDS, message = "at most " + UserBatchRequest.MAX_IDS + " ids per batch")
+        List<@NotNull(message = "ids must not contain null") Integer> ids) {
+
+    public static final int MAX_IDS = 1000;
+}
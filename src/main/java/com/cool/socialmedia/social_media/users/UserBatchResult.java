@@ -0,0 +1,16 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Per-id outcome of a batch call, in request order. {@code status} is the
+ * HTTP status the single-user endpoint would have answered with.
+ */
+public record UserBatchResult(List<Item> results) {
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Item(Integer id, int status, String message, User user) {
+    }
+}
@@ -0,0 +1,306 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Component;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.json.JsonMapper;
+
+import com.cool.socialmedia.social_media.config.MessageCatalog;
+
+/**
+ * Imports users from newline-delimited JSON or CSV with constant memory.
+ *
+ * The body is read one line at a time, each record is checked against the
+ * same bean constraints as a single POST, and valid users are handed to
+ * {@link UserDaoService#saveAllIfAbsent(List)} in batches of
+ * {@link #BATCH_SIZE}. Lines longer than {@link #MAX_LINE_LENGTH} characters
+ * are skipped unread and reported. Only the error report grows with the
+ * input, and it is capped at the first {@link #MAX_REPORTED_ERRORS} errors by
+ * line.
+ */
+@Component
+public class UserBulkImporter {
+
+    static final int BATCH_SIZE = 500;
+    static final int MAX_REPORTED_ERRORS = 1000;
+    static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private final UserDaoService userDaoService;
+    private final ObjectReader userReader;
+    private final Validator validator;
+    private final MessageCatalog messages;
+
+    public UserBulkImporter(UserDaoService userDaoService, JsonMapper jsonMapper, Validator validator,
+            MessageCatalog messages) {
+        this.userDaoService = userDaoService;
+        this.userReader = jsonMapper.readerFor(User.class);
+        this.validator = validator;
+        this.messages = messages;
+    }
+
+    public UserImportReport importNdjson(InputStream body) throws IOException {
+        Batch batch = new Batch();
+        try (Lines lines = new Lines(body)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = lines.next()) != null) {
+                lineNumber++;
+                if (lines.tooLong()) {
+                    batch.reject(lineNumber, null, batch.message("user.import.line.too.long", MAX_LINE_LENGTH));
+                    continue;
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(lineNumber, userReader.readValue(line));
+                } catch (JacksonException e) {
+                    batch.reject(lineNumber, null, batch.message("user.import.json.malformed", e.getOriginalMessage()));
+                }
+            }
+        }
+        return batch.finish();
+    }
+
+    /**
+     * Expects {@code id,name,dob} columns with an optional header row. The id
+     * may be left empty to have one assigned, and fields may be quoted.
+     */
+    public UserImportReport importCsv(InputStream body) throws IOException {
+        Batch batch = new Batch();
+        try (Lines lines = new Lines(body)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = lines.next()) != null) {
+                lineNumber++;
+                if (lines.tooLong()) {
+                    batch.reject(lineNumber, null, batch.message("user.import.line.too.long", MAX_LINE_LENGTH));
+                    continue;
+                }
+                if (line.isBlank() || (lineNumber == 1 && line.toLowerCase(Locale.ROOT).startsWith("id,"))) {
+                    continue;
+                }
+                List<String> fields = splitCsv(line);
+                if (fields.size() != 3) {
+                    batch.reject(lineNumber, null, batch.message("user.import.csv.columns", fields.size()));
+                    continue;
+                }
+                try {
+                    String id = fields.get(0).strip();
+                    String dob = fields.get(2).strip();
+                    batch.add(lineNumber, new User(id.isEmpty() ? null : Integer.valueOf(id), fields.get(1),
+                            dob.isEmpty() ? null : LocalDate.parse(dob)));
+                } catch (NumberFormatException | DateTimeParseException e) {
+                    batch.reject(lineNumber, null, batch.message("user.import.csv.malformed", e.getMessage()));
+                }
+            }
+        }
+        return batch.finish();
+    }
+
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Collects valid users until a batch is full and keeps the running
+     * totals for the report.
+     */
+    private final class Batch {
+        private final Locale locale = LocaleContextHolder.getLocale();
+        private final List<User> users = new ArrayList<>(BATCH_SIZE);
+        private final long[] lines = new long[BATCH_SIZE];
+        private final List<UserImportReport.LineError> errors = new ArrayList<>();
+        private long received;
+        private long imported;
+        private long failed;
+
+        void add(long line, User user) {
+            received++;
+            Set<ConstraintViolation<User>> violations = validator.validate(user);
+            if (!violations.isEmpty()) {
+                failed++;
+                report(line, user.getId(), violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+            lines[users.size()] = line;
+            users.add(user);
+            if (users.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void reject(long line, Integer id, String message) {
+            received++;
+            failed++;
+            report(line, id, message);
+        }
+
+        String message(String code, Object arg) {
+            return messages.get(code, new Object[] { arg }, locale);
+        }
+
+        UserImportReport finish() {
+            flush();
+            return new UserImportReport(received, imported, failed, errors, failed > errors.size());
+        }
+
+        private void flush() {
+            if (users.isEmpty()) {
+                return;
+            }
+            BitSet conflicts = userDaoService.saveAllIfAbsent(users);
+            for (int i = conflicts.nextSetBit(0); i >= 0; i = conflicts.nextSetBit(i + 1)) {
+                Integer id = users.get(i).getId();
+                failed++;
+                report(lines[i], id, message("user.already.exists", id));
+            }
+            imported += users.size() - conflicts.cardinality();
+            users.clear();
+        }
+
+        // Conflicts only surface when a batch is flushed, after errors on
+        // later lines of the same batch, so errors are kept ordered by line
+        // and the cap drops the latest ones.
+        private void report(long line, Integer id, String message) {
+            int position = errors.size();
+            while (position > 0 && errors.get(position - 1).line() > line) {
+                position--;
+            }
+            if (position == MAX_REPORTED_ERRORS) {
+                return;
+            }
+            errors.add(position, new UserImportReport.LineError(line, id, message));
+            if (errors.size() > MAX_REPORTED_ERRORS) {
+                errors.remove(MAX_REPORTED_ERRORS);
+            }
+        }
+    }
+
+    /**
+     * Like {@link BufferedReader#readLine()}, but never holds more than
+     * {@link #MAX_LINE_LENGTH} characters: the rest of a longer line is
+     * skipped, and {@link #tooLong()} tells the caller so. The reader is
+     * drained a buffer at a time and scanned for line ends in place.
+     */
+    static final class Lines implements AutoCloseable {
+
+        private final BufferedReader reader;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean tooLong;
+
+        Lines(InputStream body) {
+            this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), buffer.length);
+        }
+
+        String next() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = reader.read(buffer, 0, buffer.length);
+                    position = 0;
+                    if (limit <= 0) {
+                        limit = 0;
+                        if (!read) {
+                            return null;
+                        }
+                        break;
+                    }
+                }
+                read = true;
+                int end = position;
+                while (end < limit && buffer[end] != '\n') {
+                    end++;
+                }
+                append(position, end);
+                position = end < limit ? end + 1 : end;
+                if (end < limit) {
+                    break;
+                }
+            }
+            int length = line.length();
+            if (length > 0 && line.charAt(length - 1) == '\r') {
+                line.setLength(--length);
+            }
+            if (tooLong || length > MAX_LINE_LENGTH) {
+                tooLong = true;
+                return "";
+            }
+            return line.toString();
+        }
+
+        // Keeps at most MAX_LINE_LENGTH characters plus a trailing '\r', so
+        // a line of exactly the limit ending in CRLF still fits.
+        private void append(int from, int to) {
+            int room = MAX_LINE_LENGTH + 1 - line.length();
+            if (to - from > room) {
+                line.append(buffer, from, Math.max(room, 0));
+                tooLong = true;
+            } else {
+                line.append(buffer, from, to - from);
+            }
+        }
+
+        /**
+         * Whether the line last returned by {@link #next()} was cut short.
+         */
+        boolean tooLong() {
+            return tooLong;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
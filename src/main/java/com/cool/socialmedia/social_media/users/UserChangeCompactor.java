@@ -0,0 +1,29 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the delta-sync change log from growing with every write: runs
+ * {@link UserDaoService#compactChanges(Duration)} in the background.
+ */
+@Component
+public class UserChangeCompactor {
+
+    private final UserDaoService userDaoService;
+    private final Duration tombstoneRetention;
+
+    public UserChangeCompactor(UserDaoService userDaoService,
+            @Value("${users.changes.tombstone-retention:24h}") Duration tombstoneRetention) {
+        this.userDaoService = userDaoService;
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    @Scheduled(fixedDelayString = "${users.changes.compaction-interval:1m}")
+    public void compact() {
+        userDaoService.compactChanges(tombstoneRetention);
+    }
+}
@@ -0,0 +1,136 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Append-only log of user writes and deletes, keyed by sequence number, that
+ * backs delta sync.
+ *
+ * Sequence numbers are handed out by {@link #next()} while the writer holds
+ * the id, so they are ordered per user, and every number handed out is
+ * appended once the write is visible in the store. Writers may append out of
+ * order; readers only see the contiguous prefix below the published
+ * watermark, so a returned token never skips a change that lands later.
+ *
+ * Compaction drops entries superseded by a newer change to the same user,
+ * and tombstones older than the retention. Dropping a tombstone raises the
+ * horizon: tokens below it could miss that delete and are refused.
+ */
+public class UserChangeLog {
+
+    private final ConcurrentNavigableMap<Long, Change> entries = new ConcurrentSkipListMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong horizon = new AtomicLong();
+    // Sequence numbers restart with the process, so tokens carry the start time.
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    long next() {
+        return sequence.incrementAndGet();
+    }
+
+    void append(long seq, Integer id, User user) {
+        entries.put(seq, new Change(id, user, System.currentTimeMillis()));
+        long watermark;
+        while (entries.containsKey((watermark = published.get()) + 1)) {
+            published.compareAndSet(watermark, watermark + 1);
+        }
+    }
+
+    void appendTombstone(long seq, Integer id) {
+        append(seq, id, null);
+    }
+
+    /**
+     * Changes after the given token, oldest first, at most {@code limit}
+     * entries. A null token asks for everything still in the log.
+     *
+     * @return the changes, or null if the token is malformed, from another
+     *         run, or older than the horizon
+     */
+    public UserChanges since(String token, int limit) {
+        long since = 0;
+        if (token != null) {
+            since = parse(token);
+            if (since < 0 || since < horizon.get() || since > published.get()) {
+                return null;
+            }
+        }
+        long upTo = published.get();
+        // Only the latest change per user is returned, so clients never have
+        // to order a delete against a re-create.
+        Map<Integer, Change> latest = new LinkedHashMap<>();
+        long last = since;
+        int scanned = 0;
+        boolean more = false;
+        for (Map.Entry<Long, Change> entry : entries.subMap(since, false, upTo, true).entrySet()) {
+            if (scanned++ == limit) {
+                more = true;
+                break;
+            }
+            Change change = entry.getValue();
+            latest.remove(change.id());
+            latest.put(change.id(), change);
+            last = entry.getKey();
+        }
+        List<User> changed = new ArrayList<>();
+        List<Integer> deleted = new ArrayList<>();
+        for (Change change : latest.values()) {
+            if (change.user() == null) {
+                deleted.add(change.id());
+            } else {
+                changed.add(change.user());
+            }
+        }
+        return new UserChanges(changed, deleted, epoch + "-" + Long.toString(more ? last : upTo, 36), more);
+    }
+
+    /**
+     * Drops superseded entries and tombstones logged before
+     * {@code tombstoneCutoffMillis}. Only the published prefix is touched, so
+     * every entry looked at is already reflected in {@code current}.
+     */
+    void compact(Function<Integer, User> current, long tombstoneCutoffMillis) {
+        Iterator<Map.Entry<Long, Change>> iterator = entries.headMap(published.get(), true).entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Change> entry = iterator.next();
+            long seq = entry.getKey();
+            Change change = entry.getValue();
+            User user = current.apply(change.id());
+            if (change.user() == null) {
+                // A live user under a tombstoned id was re-created later.
+                if (user != null) {
+                    iterator.remove();
+                } else if (change.loggedAt() < tombstoneCutoffMillis) {
+                    horizon.accumulateAndGet(seq, Math::max);
+                    iterator.remove();
+                }
+            } else if (user == null || user.getVersion() != seq) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private long parse(String token) {
+        int dash = token.indexOf('-');
+        if (dash != epoch.length() || !token.startsWith(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(token, dash + 1, token.length(), 36);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private record Change(Integer id, User user, long loggedAt) {
+    }
+}
@@ -0,0 +1,11 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.util.List;
+
+/**
+ * One delta-sync response: users created or modified and ids deleted since
+ * the caller's token, plus the token to send next time. With {@code more}
+ * set, the limit was reached and the caller should ask again right away.
+ */
+public record UserChanges(List<User> changed, List<Integer> deleted, String token, boolean more) {
+}
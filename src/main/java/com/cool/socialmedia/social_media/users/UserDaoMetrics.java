@@ -0,0 +1,58 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Timers for {@link UserDaoService} operations, published as
+ * {@code users.dao} tagged with the operation, plus the
+ * {@code users.store.size} gauge.
+ *
+ * Every timer is registered up front, so recording is an array index and a
+ * lock-free update; without a registry the meters are no-ops.
+ */
+final class UserDaoMetrics {
+
+    enum Operation {
+        FIND_ONE("findOne"),
+        FIND_ALL("findAll"),
+        FIND_ALL_BY_ID("findAllById"),
+        FIND_PAGE("findPage"),
+        SEARCH("search"),
+        FIND_CHANGES("findChanges"),
+        COMPACT_CHANGES("compactChanges"),
+        SAVE("save"),
+        SAVE_IF_ABSENT("saveIfAbsent"),
+        SAVE_ALL_IF_ABSENT("saveAllIfAbsent"),
+        DELETE("delete"),
+        DELETE_ALL("deleteAll");
+
+        private final String tag;
+
+        Operation(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final Timer[] timers = new Timer[Operation.values().length];
+
+    UserDaoMetrics(MeterRegistry registry, Map<Integer, User> users) {
+        for (Operation operation : Operation.values()) {
+            timers[operation.ordinal()] = Timer.builder("users.dao")
+                    .description("User store operations")
+                    .tag("operation", operation.tag)
+                    .register(registry);
+        }
+        Gauge.builder("users.store.size", users, Map::size)
+                .description("Users currently stored")
+                .register(registry);
+    }
+
+    void record(Operation operation, long startedNanos) {
+        timers[operation.ordinal()].record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+    }
+}
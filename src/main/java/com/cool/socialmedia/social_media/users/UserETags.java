@@ -0,0 +1,40 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.time.LocalDate;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Strong ETags for the read endpoints, built from {@link User#getVersion()}
+ * for single users and {@link UserDaoService#getVersion()} for collections,
+ * so checking If-None-Match never touches the payload.
+ *
+ * Versions restart with the process, so the tag carries the start time.
+ * JSON and XML bodies are different representations and must not share a
+ * strong tag, so the Accept header is folded in as well.
+ */
+final class UserETags {
+
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private UserETags() {
+    }
+
+    static String of(long version, WebRequest request) {
+        return "\"" + EPOCH + "-" + Long.toString(version, 36) + variant(request) + "\"";
+    }
+
+    /**
+     * For V2 bodies, whose ages change at midnight without a write.
+     */
+    static String of(long version, LocalDate day, WebRequest request) {
+        return "\"" + EPOCH + "-" + Long.toString(version, 36) + "-" + Long.toString(day.toEpochDay(), 36)
+                + variant(request) + "\"";
+    }
+
+    private static String variant(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return accept == null ? "" : "-" + Integer.toHexString(accept.hashCode());
+    }
+}
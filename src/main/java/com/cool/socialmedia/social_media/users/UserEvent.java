@@ -0,0 +1,17 @@
+package com.cool.socialmedia.social_media.users;
+
+/**
+ * Published by {@link UserDaoService} after a write has reached the
+ * persistence backend. {@code previous} is the user an UPDATED event
+ * replaced, and null otherwise.
+ */
+public record UserEvent(Type type, User user, User previous) {
+
+    public UserEvent(Type type, User user) {
+        this(type, user, null);
+    }
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
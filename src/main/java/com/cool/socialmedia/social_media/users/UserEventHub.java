@@ -0,0 +1,154 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Fans {@link UserEvent}s out to Server-Sent Events subscribers.
+ *
+ * Each event is rendered to an SSE frame once and offered to every
+ * subscriber's bounded queue, so a write never waits on a client. Every
+ * subscriber is drained by its own virtual thread, which also sends a
+ * heartbeat comment when idle so dead connections are noticed.
+ *
+ * When a queue is full, {@link SlowConsumerPolicy#DISCONNECT} closes that
+ * subscriber, and {@link SlowConsumerPolicy#DROP} discards the event and
+ * later tells the client how many it missed in an "overflow" event.
+ */
+@Component
+public class UserEventHub {
+
+    public enum SlowConsumerPolicy {
+        DROP, DISCONNECT
+    }
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ThreadFactory senders = Thread.ofVirtual().name("user-events-", 0).factory();
+    private final JsonMapper jsonMapper;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final SlowConsumerPolicy slowConsumerPolicy;
+    private final Duration heartbeat;
+    private final Duration timeout;
+
+    public UserEventHub(JsonMapper jsonMapper,
+            @Value("${users.events.buffer-size:256}") int bufferSize,
+            @Value("${users.events.max-subscribers:10000}") int maxSubscribers,
+            @Value("${users.events.slow-consumer:disconnect}") SlowConsumerPolicy slowConsumerPolicy,
+            @Value("${users.events.heartbeat:15s}") Duration heartbeat,
+            @Value("${users.events.timeout:30m}") Duration timeout) {
+        this.jsonMapper = jsonMapper;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.slowConsumerPolicy = slowConsumerPolicy;
+        this.heartbeat = heartbeat;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @return the emitter for a new subscriber, or null if the hub is full
+     */
+    public SseEmitter subscribe() {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(bufferSize));
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+        Thread sender = senders.newThread(() -> drain(subscriber));
+        subscriber.sender = sender;
+        subscribers.add(subscriber);
+        sender.start();
+        return emitter;
+    }
+
+    @EventListener
+    public void onUserEvent(UserEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Set<DataWithMediaType> frame = SseEmitter.event()
+                .name(event.type().name().toLowerCase(Locale.ROOT))
+                .data(jsonMapper.writeValueAsString(event.user()), MediaType.APPLICATION_JSON)
+                .build();
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.queue.offer(frame)) {
+                if (slowConsumerPolicy == SlowConsumerPolicy.DROP) {
+                    subscriber.dropped.incrementAndGet();
+                } else {
+                    unsubscribe(subscriber);
+                }
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        SseEmitter emitter = subscriber.emitter;
+        try {
+            while (true) {
+                Set<DataWithMediaType> frame = subscriber.queue.poll(heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+                if (frame == null) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                    continue;
+                }
+                long dropped = subscriber.dropped.getAndSet(0);
+                if (dropped > 0) {
+                    emitter.send(SseEmitter.event().name("overflow").data(dropped));
+                }
+                emitter.send(frame);
+            }
+        } catch (InterruptedException e) {
+            // Unsubscribed: the hub closed this subscriber
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // The client went away, or the hub closed this subscriber mid-send;
+            // completing releases the async request now rather than at timeout
+            unsubscribe(subscriber);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriberCount.decrementAndGet();
+            Thread sender = subscriber.sender;
+            if (sender != null && sender != Thread.currentThread()) {
+                sender.interrupt();
+            }
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<DataWithMediaType>> queue;
+        private final AtomicLong dropped = new AtomicLong();
+        private Thread sender;
+
+        private Subscriber(SseEmitter emitter, BlockingQueue<Set<DataWithMediaType>> queue) {
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+}
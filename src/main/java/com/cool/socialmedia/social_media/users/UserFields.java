@@ -0,0 +1,113 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.cool.socialmedia.social_media.config.MessageCatalog;
+
+/**
+ * A parsed {@code fields=} selection, e.g. {@code ?fields=id,name}.
+ *
+ * Only the selected properties are put into the {@link SparseUser}, and the
+ * derived ones (fullName, age) are only computed when asked for. Each API
+ * version passes the set of fields its representation has.
+ */
+final class UserFields {
+
+    enum Field {
+        ID("id"), NAME("name"), DOB("dob"), FULL_NAME("fullName"), AGE("age"), LINKS("_links");
+
+        private final String param;
+
+        Field(String param) {
+            this.param = param;
+        }
+    }
+
+    static final Set<Field> V1 = EnumSet.of(Field.ID, Field.NAME, Field.DOB);
+    static final Set<Field> V2 = EnumSet.of(Field.ID, Field.NAME, Field.DOB, Field.FULL_NAME, Field.AGE);
+    static final Set<Field> V3 = EnumSet.of(Field.ID, Field.NAME, Field.DOB, Field.LINKS);
+
+    private final EnumSet<Field> selected;
+
+    private UserFields(EnumSet<Field> selected) {
+        this.selected = selected;
+    }
+
+    /**
+     * Parses a comma-separated list, ignoring blanks and repeats. Returns null
+     * when a name is not in {@code allowed} or nothing was selected.
+     */
+    static UserFields parse(String fields, Set<Field> allowed) {
+        EnumSet<Field> selected = EnumSet.noneOf(Field.class);
+        for (String name : fields.split(",")) {
+            name = name.strip();
+            if (name.isEmpty()) {
+                continue;
+            }
+            Field field = find(name, allowed);
+            if (field == null) {
+                return null;
+            }
+            selected.add(field);
+        }
+        return selected.isEmpty() ? null : new UserFields(selected);
+    }
+
+    /**
+     * Like {@link #parse}, but answers an unusable selection with 400.
+     */
+    static UserFields require(String fields, Set<Field> allowed, MessageCatalog messages) {
+        UserFields selection = parse(fields, allowed);
+        if (selection == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    messages.get("user.fields.invalid", allowed.stream()
+                            .map(field -> field.param).collect(Collectors.joining(", "))));
+        }
+        return selection;
+    }
+
+    boolean has(Field field) {
+        return selected.contains(field);
+    }
+
+    /**
+     * The selected properties of {@code user}; {@code today} is only read
+     * when the age is selected.
+     */
+    SparseUser project(User user, LocalDate today) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        if (selected.contains(Field.ID)) {
+            properties.put("id", user.getId());
+        }
+        if (selected.contains(Field.NAME)) {
+            properties.put("name", user.getName());
+        }
+        if (selected.contains(Field.DOB)) {
+            properties.put("dob", user.getDob());
+        }
+        if (selected.contains(Field.FULL_NAME)) {
+            properties.put("fullName", UserV2.fullName(user.getName()));
+        }
+        if (selected.contains(Field.AGE)) {
+            properties.put("age", UserV2.calculateAge(user.getDob(), today));
+        }
+        return new SparseUser(properties);
+    }
+
+    private static Field find(String name, Set<Field> allowed) {
+        for (Field field : allowed) {
+            if (field.param.equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,108 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Allocates user ids for creates that do not supply one.
+ *
+ * Ids are reserved from a shared high-water mark in blocks, and each stripe
+ * hands out ids from its own block, so concurrent creates only touch the
+ * shared counter once per block. Ids are unique but not dense: a block that
+ * loses a refill race is dropped, leaving a gap.
+ *
+ * Ids chosen by clients only move the mark when they fall within
+ * {@link #DEFAULT_WINDOW} of it, so a single far-off id such as
+ * {@link Integer#MAX_VALUE} cannot use up the id space. Ids skipped that way
+ * may be handed out later; the store claims them atomically and asks again
+ * when one is taken. Once no whole block is left below
+ * {@link Integer#MAX_VALUE} the mark wraps back to the first id, and the
+ * store skips the taken ones the same way.
+ */
+public class UserIdGenerator {
+
+    static final int DEFAULT_BLOCK_SIZE = 64;
+    static final int DEFAULT_WINDOW = 1 << 16;
+
+    private final AtomicInteger highWater;
+    private final AtomicReferenceArray<Block> stripes;
+    private final int stripeMask;
+    private final int blockSize;
+    private final int firstId;
+    private final int window;
+
+    public UserIdGenerator() {
+        this(1, DEFAULT_BLOCK_SIZE, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public UserIdGenerator(int firstId, int blockSize, int stripes) {
+        this(firstId, blockSize, stripes, DEFAULT_WINDOW);
+    }
+
+    public UserIdGenerator(int firstId, int blockSize, int stripes, int window) {
+        if (firstId < 1 || blockSize < 1 || stripes < 1 || window < 1) {
+            throw new IllegalArgumentException("firstId, blockSize, stripes and window must be positive");
+        }
+        int stripeCount = Integer.highestOneBit(stripes) == stripes ? stripes : Integer.highestOneBit(stripes) << 1;
+        this.highWater = new AtomicInteger(firstId);
+        this.stripes = new AtomicReferenceArray<>(stripeCount);
+        this.stripeMask = stripeCount - 1;
+        this.blockSize = blockSize;
+        this.firstId = firstId;
+        this.window = window;
+    }
+
+    public int nextId() {
+        int index = (int) Thread.currentThread().threadId() & stripeMask;
+        while (true) {
+            Block block = stripes.get(index);
+            if (block != null) {
+                int id = block.next.getAndIncrement();
+                if (id < block.limit) {
+                    return id;
+                }
+            }
+            stripes.compareAndSet(index, block, reserveBlock());
+        }
+    }
+
+    /**
+     * Makes sure blocks reserved from now on start after the given id, if it
+     * lies within the window above the mark; ids further out are ignored.
+     * Ids already sitting in reserved blocks are not revoked, so callers
+     * still have to insert atomically and ask again on a collision.
+     */
+    public void advancePast(int id) {
+        int mark = highWater.get();
+        while (id >= mark && id - mark < window && id < Integer.MAX_VALUE) {
+            if (highWater.compareAndSet(mark, id + 1)) {
+                return;
+            }
+            mark = highWater.get();
+        }
+    }
+
+    private Block reserveBlock() {
+        while (true) {
+            int start = highWater.get();
+            if (start > Integer.MAX_VALUE - blockSize) {
+                // Start over from the first id rather than running out.
+                highWater.compareAndSet(start, firstId);
+                continue;
+            }
+            if (highWater.compareAndSet(start, start + blockSize)) {
+                return new Block(start, start + blockSize);
+            }
+        }
+    }
+
+    private static final class Block {
+        private final AtomicInteger next;
+        private final int limit;
+
+        private Block(int start, int limit) {
+            this.next = new AtomicInteger(start);
+            this.limit = limit;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks that order writes to the same user id.
+ *
+ * {@link UserDaoService} holds an id's stripe from its in-memory change until
+ * the backend has taken the write, or refused it and the change has been
+ * rolled back, so writes to one id reach the backend in the order memory saw
+ * them. Writes to ids on other stripes run in parallel. A batch takes all its
+ * stripes in ascending order, so batches never wait on each other in a
+ * cycle.
+ */
+final class UserIdLocks {
+
+    static final int DEFAULT_STRIPES = 1024;
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    UserIdLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    UserIdLocks(int stripes) {
+        int count = Integer.highestOneBit(stripes) == stripes ? stripes : Integer.highestOneBit(stripes) << 1;
+        this.stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = count - 1;
+    }
+
+    Held lock(int id) {
+        int stripe = stripe(id);
+        stripes[stripe].lock();
+        Held held = new Held();
+        held.stripes.set(stripe);
+        return held;
+    }
+
+    /**
+     * Locks the stripes of every id, in ascending stripe order. Null ids are
+     * skipped.
+     */
+    Held lockAll(Collection<Integer> ids) {
+        Held held = new Held();
+        for (Integer id : ids) {
+            if (id != null) {
+                held.stripes.set(stripe(id));
+            }
+        }
+        for (int stripe = held.stripes.nextSetBit(0); stripe >= 0; stripe = held.stripes.nextSetBit(stripe + 1)) {
+            stripes[stripe].lock();
+        }
+        return held;
+    }
+
+    private int stripe(int id) {
+        int hash = id * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * The stripes a writer holds, released together.
+     */
+    final class Held implements AutoCloseable {
+
+        private final BitSet stripes = new BitSet();
+
+        /**
+         * Adds the id's stripe without waiting, since the writer already
+         * holds stripes out of order.
+         *
+         * @return whether the stripe is held now
+         */
+        boolean tryAdd(int id) {
+            int stripe = stripe(id);
+            if (stripes.get(stripe)) {
+                return true;
+            }
+            if (!UserIdLocks.this.stripes[stripe].tryLock()) {
+                return false;
+            }
+            stripes.set(stripe);
+            return true;
+        }
+
+        @Override
+        public void close() {
+            for (int stripe = stripes.nextSetBit(0); stripe >= 0; stripe = stripes.nextSetBit(stripe + 1)) {
+                UserIdLocks.this.stripes[stripe].unlock();
+            }
+            stripes.clear();
+        }
+    }
+}
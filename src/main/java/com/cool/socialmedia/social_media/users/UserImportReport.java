@@ -0,0 +1,14 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Only the first {@link UserBulkImporter#MAX_REPORTED_ERRORS}
+ * failures are listed; {@code failed} always holds the full count.
+ */
+public record UserImportReport(long received, long imported, long failed, List<LineError> errors,
+        boolean errorsTruncated) {
+
+    public record LineError(long line, Integer id, String message) {
+    }
+}
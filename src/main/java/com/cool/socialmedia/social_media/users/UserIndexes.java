@@ -0,0 +1,190 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+/**
+ * Sorted secondary indexes over the store: lowercased name and date of
+ * birth, each keyed together with the id so equal values stay distinct.
+ *
+ * {@link UserDaoService} updates them while it holds the id's stripe,
+ * together with the primary map, so for a given id every index agrees with
+ * the primary map. A search seeks to its first key and walks
+ * forward, O(log n + k) for the driving criterion; a second criterion is
+ * applied as a filter on the way.
+ */
+public class UserIndexes {
+
+    private final ConcurrentSkipListMap<NameKey, User> byName = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<DobKey, User> byDob = new ConcurrentSkipListMap<>();
+
+    void add(User user) {
+        if (user.getName() != null) {
+            byName.put(NameKey.of(user), user);
+        }
+        if (user.getDob() != null) {
+            byDob.put(DobKey.of(user), user);
+        }
+    }
+
+    void remove(User user) {
+        if (user.getName() != null) {
+            byName.remove(NameKey.of(user), user);
+        }
+        if (user.getDob() != null) {
+            byDob.remove(DobKey.of(user), user);
+        }
+    }
+
+    /**
+     * Users whose lowercased name starts with {@code namePrefix} and/or who
+     * were born strictly between {@code bornAfter} and {@code bornBefore},
+     * ordered by name when a prefix is given and by date of birth otherwise.
+     * At least one criterion must be set.
+     *
+     * @return the page, or null if {@code cursor} does not belong to this
+     *         kind of search or lies before the start of its range
+     */
+    public UserSearchResult search(String namePrefix, LocalDate bornAfter, LocalDate bornBefore, String cursor,
+            int limit) {
+        Predicate<User> bornInRange = user -> user.getDob() != null
+                && (bornAfter == null || user.getDob().isAfter(bornAfter))
+                && (bornBefore == null || user.getDob().isBefore(bornBefore));
+
+        if (namePrefix != null) {
+            String prefix = namePrefix.toLowerCase(Locale.ROOT);
+            NameKey start = new NameKey(prefix, Integer.MIN_VALUE);
+            NameKey from = cursor == null ? start : NameKey.parse(cursor);
+            if (from == null || from.compareTo(start) < 0) {
+                return null;
+            }
+            Predicate<User> filter = bornAfter == null && bornBefore == null ? user -> true : bornInRange;
+            return collect(byName.tailMap(from, cursor == null), key -> key.name().startsWith(prefix), filter,
+                    limit);
+        }
+
+        long first = bornAfter == null ? Long.MIN_VALUE : bornAfter.toEpochDay() + 1;
+        long last = bornBefore == null ? Long.MAX_VALUE : bornBefore.toEpochDay() - 1;
+        DobKey start = new DobKey(first, Integer.MIN_VALUE);
+        DobKey from = cursor == null ? start : DobKey.parse(cursor);
+        if (from == null || from.compareTo(start) < 0) {
+            return null;
+        }
+        if (first > last) {
+            return new UserSearchResult(List.of(), null);
+        }
+        return collect(byDob.tailMap(from, cursor == null), key -> key.epochDay() <= last, user -> true, limit);
+    }
+
+    private static <K extends Key> UserSearchResult collect(NavigableMap<K, User> index, Predicate<K> inRange,
+            Predicate<User> filter, int limit) {
+        List<User> items = new ArrayList<>(Math.min(limit, 64));
+        K lastKey = null;
+        Iterator<Map.Entry<K, User>> iterator = index.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, User> entry = iterator.next();
+            if (!inRange.test(entry.getKey())) {
+                return new UserSearchResult(items, null);
+            }
+            if (!filter.test(entry.getValue())) {
+                continue;
+            }
+            if (items.size() == limit) {
+                return new UserSearchResult(items, lastKey.cursor());
+            }
+            items.add(entry.getValue());
+            lastKey = entry.getKey();
+        }
+        return new UserSearchResult(items, null);
+    }
+
+    // Cursors are the last returned key, base64url-encoded behind a tag
+    // naming the index, so a cursor from one kind of search is refused by
+    // the other.
+    private interface Key {
+        String cursor();
+    }
+
+    private record NameKey(String name, int id) implements Key, Comparable<NameKey> {
+
+        static NameKey of(User user) {
+            return new NameKey(user.getName().toLowerCase(Locale.ROOT), user.getId());
+        }
+
+        static NameKey parse(String cursor) {
+            String[] parts = decode(cursor, "n");
+            return parts == null ? null : new NameKey(parts[2], Integer.parseInt(parts[1]));
+        }
+
+        @Override
+        public String cursor() {
+            return encode("n:" + id + ":" + name);
+        }
+
+        @Override
+        public int compareTo(NameKey other) {
+            int byName = name.compareTo(other.name);
+            return byName != 0 ? byName : Integer.compare(id, other.id);
+        }
+    }
+
+    private record DobKey(long epochDay, int id) implements Key, Comparable<DobKey> {
+
+        static DobKey of(User user) {
+            return new DobKey(user.getDob().toEpochDay(), user.getId());
+        }
+
+        static DobKey parse(String cursor) {
+            String[] parts = decode(cursor, "d");
+            return parts == null ? null : new DobKey(Long.parseLong(parts[2]), Integer.parseInt(parts[1]));
+        }
+
+        @Override
+        public String cursor() {
+            return encode("d:" + id + ":" + epochDay);
+        }
+
+        @Override
+        public int compareTo(DobKey other) {
+            int byDay = Long.compare(epochDay, other.epochDay);
+            return byDay != 0 ? byDay : Integer.compare(id, other.id);
+        }
+    }
+
+    private static String encode(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Returns {tag, id, value}, or null if the cursor is malformed or has
+    // another tag. Ids are checked here so callers can parse them directly.
+    private static String[] decode(String cursor, String tag) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        String[] parts = decoded.split(":", 3);
+        if (parts.length != 3 || !parts[0].equals(tag)) {
+            return null;
+        }
+        try {
+            Integer.parseInt(parts[1]);
+            if (tag.equals("d")) {
+                Long.parseLong(parts[2]);
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,295 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead journal of user saves and deletes, written through
+ * a memory-mapped file.
+ *
+ * Each record is {@code length, crc32c, body}; the mapped tail past the last
+ * record is zero, so replay stops at the first zero length or bad checksum,
+ * which also drops a record torn by a crash. The file is mapped in regions
+ * of {@code regionSize} bytes and grown one region at a time.
+ *
+ * Appends only copy into the mapping under a short lock. How long a writer
+ * then waits is the {@link FsyncPolicy}: with ALWAYS, writers wait for a
+ * force that covers their record, and one force covers everyone who
+ * appended before it started (group commit).
+ */
+class UserJournal implements Closeable {
+
+    enum FsyncPolicy {
+        /** Writers return once their record has been forced to disk. */
+        ALWAYS,
+        /** Records are forced by {@link #force()}, called on a timer. */
+        INTERVAL,
+        /** Forcing is left to the OS, and to rolls and close. */
+        NEVER
+    }
+
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+    private static final int HEADER = 8;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final FsyncPolicy fsyncPolicy;
+    private final int regionSize;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private MappedByteBuffer region;
+    private long regionStart;
+    private int regionIndex;
+    // Bytes appended and bytes known to be on disk, counted from the start
+    // of the file.
+    private long appended;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private long durable;
+    private boolean syncing;
+
+    UserJournal(Path file, FsyncPolicy fsyncPolicy, int regionSize) throws IOException {
+        this.file = file;
+        this.fsyncPolicy = fsyncPolicy;
+        this.regionSize = regionSize;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.region = channel.map(FileChannel.MapMode.READ_WRITE, 0, regionSize);
+    }
+
+    Path file() {
+        return file;
+    }
+
+    long size() {
+        appendLock.lock();
+        try {
+            return appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    void save(User user) throws IOException {
+        commit(append(encodeSave(user)));
+    }
+
+    void saveAll(Collection<User> users) throws IOException {
+        long end = 0;
+        for (User user : users) {
+            end = append(encodeSave(user));
+        }
+        commit(end);
+    }
+
+    void delete(Integer id) throws IOException {
+        commit(append(encodeDelete(id)));
+    }
+
+    void deleteAll(Collection<Integer> ids) throws IOException {
+        long end = 0;
+        for (Integer id : ids) {
+            end = append(encodeDelete(id));
+        }
+        commit(end);
+    }
+
+    /**
+     * Forces everything appended so far. Concurrent callers share one force.
+     */
+    void force() throws IOException {
+        syncTo(size());
+    }
+
+    /**
+     * Forces and closes the journal, trimming the unused mapped tail.
+     */
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            region.force();
+            channel.truncate(appended);
+            channel.close();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Replays a journal into {@code users}: saves put, deletes remove.
+     *
+     * @return the number of records applied
+     */
+    static long replay(Path file, Map<Integer, User> users) throws IOException {
+        long applied = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            CRC32C crc = new CRC32C();
+            while (true) {
+                int length;
+                int checksum;
+                byte[] body;
+                try {
+                    length = in.readInt();
+                    if (length <= 0) {
+                        break;
+                    }
+                    checksum = in.readInt();
+                    body = in.readNBytes(length);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(body);
+                if (body.length != length || (int) crc.getValue() != checksum) {
+                    break;
+                }
+                ByteBuffer record = ByteBuffer.wrap(body);
+                byte type = record.get();
+                int id = record.getInt();
+                if (type == SAVE) {
+                    users.put(id, readUser(id, record));
+                } else {
+                    users.remove(id);
+                }
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    private long append(byte[] body) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        int length = HEADER + body.length;
+        appendLock.lock();
+        try {
+            if (length > region.capacity() - regionIndex) {
+                nextRegion(length);
+            }
+            region.putInt(regionIndex, body.length);
+            region.putInt(regionIndex + 4, (int) crc.getValue());
+            region.put(regionIndex + HEADER, body);
+            regionIndex += length;
+            appended += length;
+            return appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Called with the append lock held. The old region is forced first so a
+    // pending group commit never needs a mapping that was replaced.
+    private void nextRegion(int length) throws IOException {
+        region.force();
+        markDurable(appended);
+        regionStart += regionIndex;
+        regionIndex = 0;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, Math.max(regionSize, length));
+    }
+
+    private void commit(long end) throws IOException {
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            syncTo(end);
+        }
+    }
+
+    private void syncTo(long end) throws IOException {
+        syncLock.lock();
+        try {
+            while (durable < end) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                // Become the leader: force on behalf of every record appended
+                // so far, then wake the writers waiting on any of them.
+                syncing = true;
+                syncLock.unlock();
+                long target = -1;
+                try {
+                    MappedByteBuffer toForce;
+                    long appendedBefore;
+                    appendLock.lock();
+                    try {
+                        appendedBefore = appended;
+                        toForce = region;
+                    } finally {
+                        appendLock.unlock();
+                    }
+                    toForce.force();
+                    target = appendedBefore;
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    durable = Math.max(durable, target);
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void markDurable(long position) {
+        syncLock.lock();
+        try {
+            durable = Math.max(durable, position);
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private static byte[] encodeSave(User user) {
+        byte[] name = user.getName() == null ? null : user.getName().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(1 + 4 + 8 + 4 + (name == null ? 0 : name.length));
+        body.put(SAVE).putInt(user.getId());
+        writeUser(user, name, body);
+        return body.array();
+    }
+
+    private static byte[] encodeDelete(Integer id) {
+        return ByteBuffer.allocate(1 + 4).put(DELETE).putInt(id).array();
+    }
+
+    // Shared with the snapshot format: dob as epoch day (MIN_VALUE for
+    // null), then the name as a length-prefixed UTF-8 string (-1 for null).
+    static void writeUser(User user, byte[] name, ByteBuffer out) {
+        out.putLong(user.getDob() == null ? Long.MIN_VALUE : user.getDob().toEpochDay());
+        if (name == null) {
+            out.putInt(-1);
+        } else {
+            out.putInt(name.length).put(name);
+        }
+    }
+
+    static User readUser(int id, ByteBuffer in) {
+        long dob = in.getLong();
+        int nameLength = in.getInt();
+        String name = null;
+        if (nameLength >= 0) {
+            name = new String(in.array(), in.arrayOffset() + in.position(), nameLength, StandardCharsets.UTF_8);
+            in.position(in.position() + nameLength);
+        }
+        return new User(id, name, dob == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(dob));
+    }
+}
@@ -0,0 +1,65 @@
+package com.cool.socialmedia.social_media.users;
+
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * HAL links for {@link UserResourcesV3} built from fixed templates.
+ *
+ * {@code linkTo(methodOn(...))} creates a proxy and re-resolves the handler
+ * mapping on every call. The V3 mappings never change, so the only
+ * per-request part is the servlet base URI; it is resolved the same way
+ * Spring HATEOAS does, once per request, and the templates are expanded by
+ * appending the id. The hrefs are identical to the linkTo ones.
+ */
+@Component
+public class UserLinks {
+
+    static final String USERS_PATH = "/v3/users";
+
+    private static final String BASE_URI_ATTRIBUTE = UserLinks.class.getName() + ".BASE_URI";
+
+    public Link user(Integer id) {
+        return Link.of(baseUri() + USERS_PATH + "/" + id);
+    }
+
+    public Link allUsers(LinkRelation relation) {
+        return Link.of(baseUri() + USERS_PATH, relation);
+    }
+
+    /**
+     * Self link of a collection page, carrying the paging parameters that
+     * were actually given in the same order linkTo would emit them.
+     */
+    public Link usersPage(Integer limit, Integer after, Integer before) {
+        StringBuilder href = new StringBuilder(baseUri()).append(USERS_PATH);
+        char separator = '?';
+        if (limit != null) {
+            href.append(separator).append("limit=").append(limit);
+            separator = '&';
+        }
+        if (after != null) {
+            href.append(separator).append("after=").append(after);
+            separator = '&';
+        }
+        if (before != null) {
+            href.append(separator).append("before=").append(before);
+        }
+        return Link.of(href.toString(), IanaLinkRelations.SELF);
+    }
+
+    private static String baseUri() {
+        RequestAttributes attributes = RequestContextHolder.currentRequestAttributes();
+        String baseUri = (String) attributes.getAttribute(BASE_URI_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (baseUri == null) {
+            baseUri = ServletUriComponentsBuilder.fromCurrentServletMapping().build().toUri().toString();
+            attributes.setAttribute(BASE_URI_ATTRIBUTE, baseUri, RequestAttributes.SCOPE_REQUEST);
+        }
+        return baseUri;
+    }
+}
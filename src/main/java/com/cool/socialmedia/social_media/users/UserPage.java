@@ -0,0 +1,18 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One keyset page of users in id order.
+ *
+ * {@code nextAfter} is the id to pass as {@code after} for the following page
+ * and {@code prevBefore} the id to pass as {@code before} for the preceding
+ * one; either is null when there is no page in that direction.
+ */
+public record UserPage<T>(List<T> items, Integer nextAfter, Integer prevBefore) {
+
+    public <R> UserPage<R> map(Function<? super T, ? extends R> mapper) {
+        return new UserPage<>(items.stream().<R>map(mapper).toList(), nextAfter, prevBefore);
+    }
+}
@@ -0,0 +1,84 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Cursor handling shared by the paged collection endpoints.
+ *
+ * Next/prev URIs are derived from the current request, so every parameter
+ * other than the cursor is carried over.
+ */
+final class UserPageLinks {
+
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+
+    private UserPageLinks() {
+    }
+
+    static boolean isPaged(Integer limit, Integer after, Integer before) {
+        return limit != null || after != null || before != null;
+    }
+
+    static int limit(Integer requested) {
+        return requested == null ? DEFAULT_LIMIT : Math.min(requested, MAX_LIMIT);
+    }
+
+    /**
+     * The current request's URI with all its parameters, for self links that
+     * must keep e.g. {@code fields}.
+     */
+    static String selfUri() {
+        return ServletUriComponentsBuilder.fromCurrentRequest().toUriString();
+    }
+
+    static String nextUri(UserPage<?> page) {
+        return ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("before")
+                .replaceQueryParam("after", page.nextAfter())
+                .toUriString();
+    }
+
+    static String prevUri(UserPage<?> page) {
+        return ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("after")
+                .replaceQueryParam("before", page.prevBefore())
+                .toUriString();
+    }
+
+    /**
+     * Link header for cursor-paged endpoints, which only page forward.
+     */
+    static HttpHeaders cursorLinkHeaders(String next) {
+        HttpHeaders headers = new HttpHeaders();
+        if (next != null) {
+            String uri = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", next)
+                    .toUriString();
+            headers.add(HttpHeaders.LINK, "<" + uri + ">; rel=\"next\"");
+        }
+        return headers;
+    }
+
+    /**
+     * RFC 8288 Link header for endpoints whose body is a plain JSON array.
+     */
+    static HttpHeaders linkHeaders(UserPage<?> page) {
+        List<String> links = new ArrayList<>(2);
+        if (page.nextAfter() != null) {
+            links.add("<" + nextUri(page) + ">; rel=\"next\"");
+        }
+        if (page.prevBefore() != null) {
+            links.add("<" + prevUri(page) + ">; rel=\"prev\"");
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (!links.isEmpty()) {
+            headers.add(HttpHeaders.LINK, String.join(", ", links));
+        }
+        return headers;
+    }
+}
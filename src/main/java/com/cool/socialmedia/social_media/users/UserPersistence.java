@@ -0,0 +1,50 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Durable backing store for {@link UserDaoService}.
+ *
+ * The DAO keeps serving reads from its in-memory index and forwards every
+ * write here, so a backend only has to persist changes and hand the users
+ * back on startup. The backend is picked with the {@code users.persistence}
+ * property.
+ */
+public interface UserPersistence {
+
+    /**
+     * Keeps users in memory only; everything is lost on restart.
+     */
+    UserPersistence NONE = new UserPersistence() {
+    };
+
+    default List<User> loadAll() {
+        return List.of();
+    }
+
+    /**
+     * Stores a user whose id is known to be new.
+     */
+    default void insert(User user) {
+    }
+
+    /**
+     * Stores users whose ids are known to be new, in as few round trips as
+     * the backend allows.
+     */
+    default void insertAll(Collection<User> users) {
+    }
+
+    /**
+     * Stores a user, replacing any previous user with the same id.
+     */
+    default void save(User user) {
+    }
+
+    default void delete(Integer id) {
+    }
+
+    default void deleteAll(Collection<Integer> ids) {
+    }
+}
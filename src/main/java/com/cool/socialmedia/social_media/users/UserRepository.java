@@ -0,0 +1,6 @@
+package com.cool.socialmedia.social_media.users;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface UserRepository extends JpaRepository<User, Integer> {
+}
@@ -1,12 +1,8 @@
 package com.cool.socialmedia.social_media.users;
 
 import java.util.List;
-import java.util.Locale;
 
-import org.springframework.context.MessageSource;
-import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.http.HttpStatus;
-import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -18,6 +14,9 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import org.springframework.validation.annotation.Validated;
 
+import com.cool.socialmedia.social_media.config.MessageCatalog;
+import com.cool.socialmedia.social_media.exception.StacklessResponseStatusException;
+
 /**
  * @deprecated This controller is deprecated. Use versioned endpoints instead:
  *             - V1: /v1/users (basic user data)
@@ -32,11 +31,11 @@ import org.springframework.validation.annotation.Validated;
 public class UserResources {
 
     private final UserDaoService userDaoService;
-    private final MessageSource messageSource;
+    private final MessageCatalog messages;
 
-    public UserResources(UserDaoService userDaoService, MessageSource messageSource) {
+    public UserResources(UserDaoService userDaoService, MessageCatalog messages) {
         this.userDaoService = userDaoService;
-        this.messageSource = messageSource;
+        this.messages = messages;
     }
 
     @GetMapping("/users/{id}")
@@ -51,14 +50,11 @@ public class UserResources {
 
     @PostMapping("/users")
     public org.springframework.http.ResponseEntity<Object> createUser(@Valid @RequestBody User user) {
-        Locale locale = LocaleContextHolder.getLocale();
-
-        if (user.getId() != null && userDaoService.findOne(user.getId()) != null) {
-            String errorMessage = messageSource.getMessage("user.already.exists", new Object[] { user.getId() },
-                    locale);
-            throw new ResponseStatusException(HttpStatus.CONFLICT, errorMessage);
+        User savedUser = userDaoService.saveIfAbsent(user);
+        if (savedUser == null) {
+            String errorMessage = messages.get("user.already.exists", user.getId());
+            throw new StacklessResponseStatusException(HttpStatus.CONFLICT, errorMessage);
         }
-        User savedUser = userDaoService.save(user);
 
         java.net.URI location = org.springframework.web.servlet.support.ServletUriComponentsBuilder
                 .fromCurrentRequest()
@@ -67,7 +63,7 @@ public class UserResources {
                 .toUri();
 
         java.util.Map<String, Object> response = new java.util.LinkedHashMap<>();
-        response.put("message", messageSource.getMessage("user.created.success", null, locale));
+        response.put("message", messages.get("user.created.success"));
         response.put("data", savedUser);
 
         return org.springframework.http.ResponseEntity.created(location).body(response);
@@ -76,17 +72,15 @@ public class UserResources {
     @DeleteMapping("/users/{id}")
     public org.springframework.http.ResponseEntity<Object> deleteUser(
             @PathVariable @Positive(message = "ID must be positive") Integer id) {
-        Locale locale = LocaleContextHolder.getLocale();
-
         User user = userDaoService.findOne(id);
         if (user == null) {
-            String errorMessage = messageSource.getMessage("user.not.found", new Object[] { id }, locale);
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, errorMessage);
+            String errorMessage = messages.get("user.not.found", id);
+            throw new StacklessResponseStatusException(HttpStatus.NOT_FOUND, errorMessage);
         }
         userDaoService.delete(id);
 
         java.util.Map<String, Object> response = new java.util.LinkedHashMap<>();
-        response.put("message", messageSource.getMessage("user.deleted.success", null, locale));
+        response.put("message", messages.get("user.deleted.success"));
 
         return org.springframework.http.ResponseEntity.status(HttpStatus.OK).body(response);
     }
@@ -1,24 +1,36 @@
 package com.cool.socialmedia.social_media.users;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Locale;
 
-import org.springframework.context.MessageSource;
-import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import org.springframework.validation.annotation.Validated;
 
+import com.cool.socialmedia.social_media.config.MessageCatalog;
+import com.cool.socialmedia.social_media.exception.StacklessResponseStatusException;
+
 /**
  * REST API Version 1 - Basic user data
  * 
@@ -35,36 +47,101 @@ import org.springframework.validation.annotation.Validated;
 public class UserResourcesV1 {
 
     private final UserDaoService userDaoService;
-    private final MessageSource messageSource;
+    private final MessageCatalog messages;
+    private final UserStreamWriter userStreamWriter;
+    private final UserBulkImporter userBulkImporter;
+    private final UserEventHub userEventHub;
 
-    public UserResourcesV1(UserDaoService userDaoService, MessageSource messageSource) {
+    public UserResourcesV1(UserDaoService userDaoService, MessageCatalog messages,
+            UserStreamWriter userStreamWriter, UserBulkImporter userBulkImporter, UserEventHub userEventHub) {
         this.userDaoService = userDaoService;
-        this.messageSource = messageSource;
+        this.messages = messages;
+        this.userStreamWriter = userStreamWriter;
+        this.userBulkImporter = userBulkImporter;
+        this.userEventHub = userEventHub;
     }
 
     // ==================== URI PATH VERSIONING ====================
     // Access via: GET /v1/users/{id}
 
+    // A matching If-None-Match is answered with 304 and no body
+
     @GetMapping("/users/{id}")
-    public User getUser(@PathVariable Integer id) {
-        return userDaoService.findOne(id);
+    public User getUser(@PathVariable Integer id, WebRequest request) {
+        User user = userDaoService.findOne(id);
+        if (user != null && request.checkNotModified(UserETags.of(user.getVersion(), request))) {
+            return null;
+        }
+        return user;
     }
 
+    /**
+     * Without paging parameters the full list is returned, as before. With
+     * {@code limit}, {@code after} or {@code before} a keyset page is
+     * returned and the neighbouring pages are advertised in the Link header.
+     */
     @GetMapping("/users")
-    public List<User> getAllUsers() {
-        return userDaoService.findAll();
+    public ResponseEntity<List<User>> getAllUsers(
+            @RequestParam(required = false) @Positive(message = "limit must be positive") Integer limit,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer before,
+            WebRequest request) {
+        if (request.checkNotModified(UserETags.of(userDaoService.getVersion(), request))) {
+            return null;
+        }
+        if (!UserPageLinks.isPaged(limit, after, before)) {
+            return ResponseEntity.ok(userDaoService.findAll());
+        }
+        UserPage<User> page = userDaoService.findPage(after, before, UserPageLinks.limit(limit));
+        return ResponseEntity.ok().headers(UserPageLinks.linkHeaders(page)).body(page.items());
+    }
+
+    // Access via: GET /v1/users/{id}?fields=id,name (also /v1/users and /v1/users/search)
+    // Only the listed properties are written
+
+    @GetMapping(value = "/users/{id}", params = "fields")
+    public SparseUser getUserFields(@PathVariable Integer id, @RequestParam String fields, WebRequest request) {
+        UserFields selection = UserFields.require(fields, UserFields.V1, messages);
+        User user = getUser(id, request);
+        return user != null ? selection.project(user, null) : null;
+    }
+
+    @GetMapping(value = "/users", params = "fields")
+    public ResponseEntity<List<SparseUser>> getAllUsersFields(
+            @RequestParam String fields,
+            @RequestParam(required = false) @Positive(message = "limit must be positive") Integer limit,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer before,
+            WebRequest request) {
+        UserFields selection = UserFields.require(fields, UserFields.V1, messages);
+        return project(getAllUsers(limit, after, before, request), selection);
+    }
+
+    @GetMapping(value = "/users", params = { "stream=true", "fields" })
+    public ResponseEntity<StreamingResponseBody> streamAllUsersFields(@RequestParam String fields) {
+        UserFields selection = UserFields.require(fields, UserFields.V1, messages);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(userStreamWriter.jsonArray(userDaoService.streamAll().map(user -> selection.project(user, null))));
+    }
+
+    // Access via: GET /v1/users?stream=true
+    // Writes the users incrementally instead of building the whole list first
+
+    @GetMapping(value = "/users", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(userStreamWriter.jsonArray(userDaoService.streamAll()));
     }
 
     @PostMapping("/users")
     public org.springframework.http.ResponseEntity<Object> createUser(@Valid @RequestBody User user) {
-        Locale locale = LocaleContextHolder.getLocale();
-
-        if (user.getId() != null && userDaoService.findOne(user.getId()) != null) {
-            String errorMessage = messageSource.getMessage("user.already.exists", new Object[] { user.getId() },
-                    locale);
-            throw new ResponseStatusException(HttpStatus.CONFLICT, errorMessage);
+        User savedUser = userDaoService.saveIfAbsent(user);
+        if (savedUser == null) {
+            String errorMessage = messages.get("user.already.exists", user.getId());
+            throw new StacklessResponseStatusException(HttpStatus.CONFLICT, errorMessage);
         }
-        User savedUser = userDaoService.save(user);
 
         java.net.URI location = org.springframework.web.servlet.support.ServletUriComponentsBuilder
                 .fromCurrentRequest()
@@ -73,7 +150,7 @@ public class UserResourcesV1 {
                 .toUri();
 
         java.util.Map<String, Object> response = new java.util.LinkedHashMap<>();
-        response.put("message", messageSource.getMessage("user.created.success", null, locale));
+        response.put("message", messages.get("user.created.success"));
         response.put("data", savedUser);
 
         return org.springframework.http.ResponseEntity.created(location).body(response);
@@ -82,21 +159,186 @@ public class UserResourcesV1 {
     @DeleteMapping("/users/{id}")
     public org.springframework.http.ResponseEntity<Object> deleteUser(
             @PathVariable @Positive(message = "ID must be positive") Integer id) {
-        Locale locale = LocaleContextHolder.getLocale();
-
         User user = userDaoService.findOne(id);
         if (user == null) {
-            String errorMessage = messageSource.getMessage("user.not.found", new Object[] { id }, locale);
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, errorMessage);
+            String errorMessage = messages.get("user.not.found", id);
+            throw new StacklessResponseStatusException(HttpStatus.NOT_FOUND, errorMessage);
         }
         userDaoService.delete(id);
 
         java.util.Map<String, Object> response = new java.util.LinkedHashMap<>();
-        response.put("message", messageSource.getMessage("user.deleted.success", null, locale));
+        response.put("message", messages.get("user.deleted.success"));
 
         return org.springframework.http.ResponseEntity.status(HttpStatus.OK).body(response);
     }
 
+    // ==================== SEARCH ====================
+    // Access via: GET /v1/users/search?namePrefix=jo&bornAfter=1989-12-31&bornBefore=2000-01-01
+    // Name prefixes are case-insensitive and date bounds exclusive. Results
+    // come in pages of limit; the Link header points at the next page
+
+    @GetMapping("/users/search")
+    public ResponseEntity<List<User>> searchUsers(
+            @RequestParam(required = false) String namePrefix,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornAfter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornBefore,
+            @RequestParam(required = false) @Positive(message = "limit must be positive") Integer limit,
+            @RequestParam(required = false) String cursor) {
+        if (namePrefix == null && bornAfter == null && bornBefore == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    messages.get("user.search.criteria.required"));
+        }
+        UserSearchResult result = userDaoService.search(namePrefix, bornAfter, bornBefore, cursor,
+                UserPageLinks.limit(limit));
+        if (result == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    messages.get("user.search.cursor.invalid"));
+        }
+        return ResponseEntity.ok().headers(UserPageLinks.cursorLinkHeaders(result.next())).body(result.items());
+    }
+
+    @GetMapping(value = "/users/search", params = "fields")
+    public ResponseEntity<List<SparseUser>> searchUsersFields(
+            @RequestParam String fields,
+            @RequestParam(required = false) String namePrefix,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornAfter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate bornBefore,
+            @RequestParam(required = false) @Positive(message = "limit must be positive") Integer limit,
+            @RequestParam(required = false) String cursor) {
+        UserFields selection = UserFields.require(fields, UserFields.V1, messages);
+        return project(searchUsers(namePrefix, bornAfter, bornBefore, limit, cursor), selection);
+    }
+
+    private static ResponseEntity<List<SparseUser>> project(ResponseEntity<List<User>> users, UserFields selection) {
+        if (users == null) {
+            return null;
+        }
+        List<SparseUser> projected = users.getBody().stream().map(user -> selection.project(user, null)).toList();
+        return ResponseEntity.ok().headers(users.getHeaders()).body(projected);
+    }
+
+    // ==================== DELTA SYNC ====================
+    // Access via: GET /v1/users/changes?since=<token>
+    // Start without a token, then pass the returned token on the next call.
+    // 410 Gone means the token is too old to serve: sync again without one
+
+    @GetMapping("/users/changes")
+    public UserChanges getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) @Positive(message = "limit must be positive") Integer limit) {
+        UserChanges changes = userDaoService.findChanges(since, UserPageLinks.limit(limit));
+        if (changes == null) {
+            throw new ResponseStatusException(HttpStatus.GONE,
+                    messages.get("user.changes.expired"));
+        }
+        return changes;
+    }
+
+    // ==================== EVENTS ====================
+    // Access via: GET /v1/users/events (Accept: text/event-stream)
+    // Pushes created, updated and deleted events as they happen; see
+    // UserEventHub for buffering and the slow-consumer policy
+
+    @GetMapping(value = "/users/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents() {
+        SseEmitter emitter = userEventHub.subscribe();
+        if (emitter == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    messages.get("user.events.busy"));
+        }
+        return emitter;
+    }
+
+    // ==================== BATCH GET / DELETE ====================
+    // Access via: POST /v1/users:batchGet or /v1/users:batchDelete
+    // with {"ids": [1, 2, 3]}; each id gets its own status and message
+
+    @PostMapping("/users:batchGet")
+    public UserBatchResult batchGetUsers(@Valid @RequestBody UserBatchRequest request) {
+        List<User> users = userDaoService.findAll(request.ids());
+        List<UserBatchResult.Item> results = new java.util.ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            Integer id = request.ids().get(i);
+            User user = users.get(i);
+            results.add(user != null
+                    ? new UserBatchResult.Item(id, HttpStatus.OK.value(), null, user)
+                    : notFound(id));
+        }
+        return new UserBatchResult(results);
+    }
+
+    @PostMapping("/users:batchDelete")
+    public UserBatchResult batchDeleteUsers(@Valid @RequestBody UserBatchRequest request) {
+        java.util.BitSet missing = userDaoService.deleteAll(request.ids());
+        String deleted = messages.get("user.deleted.success");
+        List<UserBatchResult.Item> results = new java.util.ArrayList<>(request.ids().size());
+        for (int i = 0; i < request.ids().size(); i++) {
+            Integer id = request.ids().get(i);
+            results.add(missing.get(i)
+                    ? notFound(id)
+                    : new UserBatchResult.Item(id, HttpStatus.OK.value(), deleted, null));
+        }
+        return new UserBatchResult(results);
+    }
+
+    private UserBatchResult.Item notFound(Integer id) {
+        return new UserBatchResult.Item(id, HttpStatus.NOT_FOUND.value(),
+                messages.get("user.not.found", id), null);
+    }
+
+    // ==================== BULK IMPORT ====================
+    // Access via: POST /v1/users:bulk with Content-Type application/x-ndjson
+    // (one user object per line) or text/csv (id,name,dob)
+
+    @PostMapping(value = "/users:bulk", consumes = "application/x-ndjson")
+    public UserImportReport importUsersNdjson(InputStream body) throws IOException {
+        return userBulkImporter.importNdjson(body);
+    }
+
+    @PostMapping(value = "/users:bulk", consumes = "text/csv")
+    public UserImportReport importUsersCsv(InputStream body) throws IOException {
+        return userBulkImporter.importCsv(body);
+    }
+
+    // ==================== BULK EXPORT ====================
+    // Access via: GET /v1/users:export?format=json|xml|csv
+    // Streams every user straight from the store; send Accept-Encoding: gzip
+    // to have the stream compressed on the fly
+
+    @GetMapping("/users:export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestParam(defaultValue = "json") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        StreamingResponseBody body;
+        MediaType contentType;
+        switch (format) {
+            case "json" -> {
+                body = userStreamWriter.jsonArray(userDaoService.streamAll());
+                contentType = MediaType.APPLICATION_JSON;
+            }
+            case "xml" -> {
+                body = userStreamWriter.xml(userDaoService.streamAll());
+                contentType = MediaType.APPLICATION_XML;
+            }
+            case "csv" -> {
+                body = userStreamWriter.csv(userDaoService.streamAll());
+                contentType = new MediaType("text", "csv", java.nio.charset.StandardCharsets.UTF_8);
+            }
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Unsupported export format: " + format);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + format + "\"")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (UserStreamWriter.acceptsGzip(acceptEncoding)) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = userStreamWriter.gzip(body);
+        }
+        return response.body(body);
+    }
+
     // ==================== REQUEST PARAM VERSIONING ====================
     // Access via: GET /users/param/{id}?version=1
 
@@ -116,9 +358,11 @@ public class UserResourcesV1 {
     // ==================== MEDIA TYPE (CONTENT NEGOTIATION) VERSIONING
     // ====================
     // Access via: GET /users/accept/{id} with header Accept:
-    // application/vnd.socialmedia.app-v1+json
+    // application/vnd.socialmedia.app-v1+json, or +cbor / +smile for the
+    // binary representations
 
-    @GetMapping(value = "/users/accept/{id}", produces = "application/vnd.socialmedia.app-v1+json")
+    @GetMapping(value = "/users/accept/{id}", produces = { "application/vnd.socialmedia.app-v1+json",
+            "application/vnd.socialmedia.app-v1+cbor", "application/vnd.socialmedia.app-v1+smile" })
     public User getUserByMediaType(@PathVariable Integer id) {
         return userDaoService.findOne(id);
     }
@@ -1,30 +1,34 @@
 package com.cool.socialmedia.social_media.users;
 
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Locale;
-import java.util.stream.Collectors;
 
-import org.springframework.context.MessageSource;
-import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.http.HttpStatus;
-import org.springframework.web.server.ResponseStatusException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import org.springframework.validation.annotation.Validated;
 
+import com.cool.socialmedia.social_media.config.MessageCatalog;
+import com.cool.socialmedia.social_media.exception.StacklessResponseStatusException;
+
 /**
  * REST API Version 2 - Enhanced user data with additional fields
  * 
  * V2 returns UserV2 which includes additional metadata like fullName and age
- * calculation
+ * calculation. Projections are cached per user by {@link UserV2Projections}
  */
 @RestController
 @Validated
@@ -32,42 +36,120 @@ import org.springframework.validation.annotation.Validated;
 public class UserResourcesV2 {
 
     private final UserDaoService userDaoService;
-    private final MessageSource messageSource;
-
-    public UserResourcesV2(UserDaoService userDaoService, MessageSource messageSource) {
+    private final MessageCatalog messages;
+    private final UserStreamWriter userStreamWriter;
+    private final UserV2Projections userV2Projections;
+    private final UserAgeStatistics userAgeStatistics;
+
+    public UserResourcesV2(UserDaoService userDaoService, MessageCatalog messages,
+            UserStreamWriter userStreamWriter, UserV2Projections userV2Projections,
+            UserAgeStatistics userAgeStatistics) {
         this.userDaoService = userDaoService;
-        this.messageSource = messageSource;
+        this.messages = messages;
+        this.userStreamWriter = userStreamWriter;
+        this.userV2Projections = userV2Projections;
+        this.userAgeStatistics = userAgeStatistics;
     }
 
     // ==================== URI PATH VERSIONING ====================
     // Access via: GET /v2/users/{id}
 
     @GetMapping("/users/{id}")
-    public UserV2 getUser(@PathVariable Integer id) {
+    public UserV2 getUser(@PathVariable Integer id, WebRequest request) {
         User user = userDaoService.findOne(id);
         if (user == null) {
             return null;
         }
-        return new UserV2(user);
+        if (request.checkNotModified(UserETags.of(user.getVersion(), userV2Projections.today(), request))) {
+            return null;
+        }
+        return userV2Projections.of(user);
     }
 
+    /**
+     * Paged like /v1/users: the full list without paging parameters, a keyset
+     * page plus Link header with them.
+     */
     @GetMapping("/users")
-    public List<UserV2> getAllUsers() {
-        return userDaoService.findAll().stream()
-                .map(UserV2::new)
-                .collect(Collectors.toList());
+    public ResponseEntity<List<UserV2>> getAllUsers(
+            @RequestParam(required = false) @Positive(message = "limit must be positive") Integer limit,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer before,
+            WebRequest request) {
+        if (request.checkNotModified(
+                UserETags.of(userDaoService.getVersion(), userV2Projections.today(), request))) {
+            return null;
+        }
+        if (!UserPageLinks.isPaged(limit, after, before)) {
+            return ResponseEntity.ok(userDaoService.streamAll().map(userV2Projections::of).toList());
+        }
+        UserPage<UserV2> page = userDaoService.findPage(after, before, UserPageLinks.limit(limit)).map(userV2Projections::of);
+        return ResponseEntity.ok().headers(UserPageLinks.linkHeaders(page)).body(page.items());
+    }
+
+    // Access via: GET /v2/users/{id}?fields=id,age (also /v2/users)
+    // Only the listed properties are written; fullName and age are not
+    // computed unless listed
+
+    @GetMapping(value = "/users/{id}", params = "fields")
+    public SparseUser getUserFields(@PathVariable Integer id, @RequestParam String fields, WebRequest request) {
+        UserFields selection = UserFields.require(fields, UserFields.V2, messages);
+        User user = userDaoService.findOne(id);
+        if (user == null) {
+            return null;
+        }
+        LocalDate today = userV2Projections.today();
+        if (request.checkNotModified(UserETags.of(user.getVersion(), today, request))) {
+            return null;
+        }
+        return selection.project(user, today);
+    }
+
+    @GetMapping(value = "/users", params = "fields")
+    public ResponseEntity<List<SparseUser>> getAllUsersFields(
+            @RequestParam String fields,
+            @RequestParam(required = false) @Positive(message = "limit must be positive") Integer limit,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer before,
+            WebRequest request) {
+        UserFields selection = UserFields.require(fields, UserFields.V2, messages);
+        LocalDate today = userV2Projections.today();
+        if (request.checkNotModified(UserETags.of(userDaoService.getVersion(), today, request))) {
+            return null;
+        }
+        if (!UserPageLinks.isPaged(limit, after, before)) {
+            return ResponseEntity.ok(userDaoService.streamAll().map(user -> selection.project(user, today)).toList());
+        }
+        UserPage<SparseUser> page = userDaoService.findPage(after, before, UserPageLinks.limit(limit))
+                .map(user -> selection.project(user, today));
+        return ResponseEntity.ok().headers(UserPageLinks.linkHeaders(page)).body(page.items());
+    }
+
+    @GetMapping(value = "/users", params = { "stream=true", "fields" })
+    public ResponseEntity<StreamingResponseBody> streamAllUsersFields(@RequestParam String fields) {
+        UserFields selection = UserFields.require(fields, UserFields.V2, messages);
+        LocalDate today = userV2Projections.today();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(userStreamWriter.jsonArray(userDaoService.streamAll().map(user -> selection.project(user, today))));
+    }
+
+    // Access via: GET /v2/users?stream=true
+
+    @GetMapping(value = "/users", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(userStreamWriter.jsonArray(userDaoService.streamAll().map(userV2Projections::of)));
     }
 
     @PostMapping("/users")
     public org.springframework.http.ResponseEntity<Object> createUser(@Valid @RequestBody User user) {
-        Locale locale = LocaleContextHolder.getLocale();
-
-        if (user.getId() != null && userDaoService.findOne(user.getId()) != null) {
-            String errorMessage = messageSource.getMessage("user.already.exists", new Object[] { user.getId() },
-                    locale);
-            throw new ResponseStatusException(HttpStatus.CONFLICT, errorMessage);
+        User savedUser = userDaoService.saveIfAbsent(user);
+        if (savedUser == null) {
+            String errorMessage = messages.get("user.already.exists", user.getId());
+            throw new StacklessResponseStatusException(HttpStatus.CONFLICT, errorMessage);
         }
-        User savedUser = userDaoService.save(user);
 
         java.net.URI location = org.springframework.web.servlet.support.ServletUriComponentsBuilder
                 .fromCurrentRequest()
@@ -76,8 +158,8 @@ public class UserResourcesV2 {
                 .toUri();
 
         java.util.Map<String, Object> response = new java.util.LinkedHashMap<>();
-        response.put("message", messageSource.getMessage("user.created.success", null, locale));
-        response.put("data", new UserV2(savedUser));
+        response.put("message", messages.get("user.created.success"));
+        response.put("data", userV2Projections.of(savedUser));
         response.put("apiVersion", "v2");
 
         return org.springframework.http.ResponseEntity.created(location).body(response);
@@ -86,29 +168,43 @@ public class UserResourcesV2 {
     @DeleteMapping("/users/{id}")
     public org.springframework.http.ResponseEntity<Object> deleteUser(
             @PathVariable @Positive(message = "ID must be positive") Integer id) {
-        Locale locale = LocaleContextHolder.getLocale();
-
         User user = userDaoService.findOne(id);
         if (user == null) {
-            String errorMessage = messageSource.getMessage("user.not.found", new Object[] { id }, locale);
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, errorMessage);
+            String errorMessage = messages.get("user.not.found", id);
+            throw new StacklessResponseStatusException(HttpStatus.NOT_FOUND, errorMessage);
         }
         userDaoService.delete(id);
 
         java.util.Map<String, Object> response = new java.util.LinkedHashMap<>();
-        response.put("message", messageSource.getMessage("user.deleted.success", null, locale));
+        response.put("message", messages.get("user.deleted.success"));
         response.put("apiVersion", "v2");
 
         return org.springframework.http.ResponseEntity.status(HttpStatus.OK).body(response);
     }
 
+    // ==================== STATS ====================
+    // Access via: GET /v2/users/stats
+
+    /**
+     * Age buckets, min/max/median age and total count, maintained
+     * incrementally by {@link UserAgeStatistics}.
+     */
+    @GetMapping("/users/stats")
+    public UserStats getStats(WebRequest request) {
+        UserStats stats = userAgeStatistics.stats();
+        if (request.checkNotModified(UserETags.of(stats.version(), stats.day(), request))) {
+            return null;
+        }
+        return stats;
+    }
+
     // ==================== REQUEST PARAM VERSIONING ====================
     // Access via: GET /users/param/{id}?version=2
 
     @GetMapping(value = "/users/param/{id}", params = "version=2")
     public UserV2 getUserByParam(@PathVariable Integer id) {
         User user = userDaoService.findOne(id);
-        return user != null ? new UserV2(user) : null;
+        return user != null ? userV2Projections.of(user) : null;
     }
 
     // ==================== HEADER VERSIONING ====================
@@ -117,17 +213,19 @@ public class UserResourcesV2 {
     @GetMapping(value = "/users/header/{id}", headers = "X-API-VERSION=2")
     public UserV2 getUserByHeader(@PathVariable Integer id) {
         User user = userDaoService.findOne(id);
-        return user != null ? new UserV2(user) : null;
+        return user != null ? userV2Projections.of(user) : null;
     }
 
     // ==================== MEDIA TYPE (CONTENT NEGOTIATION) VERSIONING
     // ====================
     // Access via: GET /users/accept/{id} with header Accept:
-    // application/vnd.socialmedia.app-v2+json
+    // application/vnd.socialmedia.app-v2+json, or +cbor / +smile for the
+    // binary representations
 
-    @GetMapping(value = "/users/accept/{id}", produces = "application/vnd.socialmedia.app-v2+json")
+    @GetMapping(value = "/users/accept/{id}", produces = { "application/vnd.socialmedia.app-v2+json",
+            "application/vnd.socialmedia.app-v2+cbor", "application/vnd.socialmedia.app-v2+smile" })
     public UserV2 getUserByMediaType(@PathVariable Integer id) {
         User user = userDaoService.findOne(id);
-        return user != null ? new UserV2(user) : null;
+        return user != null ? userV2Projections.of(user) : null;
     }
 }
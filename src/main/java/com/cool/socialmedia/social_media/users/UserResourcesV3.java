@@ -1,31 +1,31 @@
 package com.cool.socialmedia.social_media.users;
 
 import java.util.List;
-import java.util.Locale;
 import java.util.stream.Collectors;
 
-import org.springframework.context.MessageSource;
-import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
-// import org.springframework.hateoas.server.mvc.WebMvcLinkBuilder;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import org.springframework.validation.annotation.Validated;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+import com.cool.socialmedia.social_media.config.MessageCatalog;
+import com.cool.socialmedia.social_media.exception.StacklessResponseStatusException;
 
 /**
  * REST API Version 3 - HATEOAS with HAL (Hypertext Application Language)
@@ -40,12 +40,16 @@ import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 @RequestMapping("/v3")
 public class UserResourcesV3 {
 
+    private static final LinkRelation ALL_USERS = LinkRelation.of("all-users");
+
     private final UserDaoService userDaoService;
-    private final MessageSource messageSource;
+    private final MessageCatalog messages;
+    private final UserLinks userLinks;
 
-    public UserResourcesV3(UserDaoService userDaoService, MessageSource messageSource) {
+    public UserResourcesV3(UserDaoService userDaoService, MessageCatalog messages, UserLinks userLinks) {
         this.userDaoService = userDaoService;
-        this.messageSource = messageSource;
+        this.messages = messages;
+        this.userLinks = userLinks;
     }
 
     /**
@@ -53,44 +57,136 @@ public class UserResourcesV3 {
      * Returns a single user wrapped in EntityModel with HATEOAS links
      */
     @GetMapping("/users/{id}")
-    public EntityModel<User> getUser(@PathVariable Integer id) {
+    public EntityModel<User> getUser(@PathVariable Integer id, WebRequest request) {
         User user = userDaoService.findOne(id);
         if (user == null) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
-                    messageSource.getMessage("user.not.found", new Object[] { id }, LocaleContextHolder.getLocale()));
+            throw new StacklessResponseStatusException(HttpStatus.NOT_FOUND,
+                    messages.get("user.not.found", id));
+        }
+        if (request.checkNotModified(UserETags.of(user.getVersion(), request))) {
+            return null;
         }
 
         // Create EntityModel with the user and add HATEOAS links
         EntityModel<User> entityModel = EntityModel.of(user);
 
         // Add self link
-        entityModel.add(linkTo(methodOn(this.getClass()).getUser(id)).withSelfRel());
+        entityModel.add(userLinks.user(id));
 
         // Add link to all users
-        entityModel.add(linkTo(methodOn(this.getClass()).getAllUsers()).withRel("all-users"));
+        entityModel.add(userLinks.allUsers(ALL_USERS));
 
         return entityModel;
     }
 
     /**
      * GET /v3/users
-     * Returns all users wrapped in CollectionModel with HATEOAS links
+     * Returns all users wrapped in CollectionModel with HATEOAS links.
+     * With limit/after/before a keyset page is returned, linked to its
+     * neighbours through _links.next and _links.prev. The ETag follows the
+     * store version, so an unchanged store answers 304 without a scan
      */
     @GetMapping("/users")
-    public CollectionModel<EntityModel<User>> getAllUsers() {
-        List<EntityModel<User>> users = userDaoService.findAll().stream()
+    public CollectionModel<EntityModel<User>> getAllUsers(
+            @RequestParam(required = false) @Positive(message = "limit must be positive") Integer limit,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer before,
+            WebRequest request) {
+        if (request.checkNotModified(UserETags.of(userDaoService.getVersion(), request))) {
+            return null;
+        }
+        boolean paged = UserPageLinks.isPaged(limit, after, before);
+        UserPage<User> page = paged ? userDaoService.findPage(after, before, UserPageLinks.limit(limit)) : null;
+        List<User> source = paged ? page.items() : userDaoService.findAll();
+
+        List<EntityModel<User>> users = source.stream()
                 .map(user -> {
                     EntityModel<User> entityModel = EntityModel.of(user);
                     // Add self link for each user
-                    entityModel.add(linkTo(methodOn(this.getClass()).getUser(user.getId())).withSelfRel());
+                    entityModel.add(userLinks.user(user.getId()));
                     return entityModel;
                 })
                 .collect(Collectors.toList());
 
         // Wrap in CollectionModel and add self link
         CollectionModel<EntityModel<User>> collectionModel = CollectionModel.of(users);
-        collectionModel.add(linkTo(methodOn(this.getClass()).getAllUsers()).withSelfRel());
+        collectionModel.add(userLinks.usersPage(limit, after, before));
+        if (paged && page.nextAfter() != null) {
+            collectionModel.add(Link.of(UserPageLinks.nextUri(page), IanaLinkRelations.NEXT));
+        }
+        if (paged && page.prevBefore() != null) {
+            collectionModel.add(Link.of(UserPageLinks.prevUri(page), IanaLinkRelations.PREV));
+        }
+
+        return collectionModel;
+    }
+
+    /**
+     * GET /v3/users/{id}?fields=id,name,_links
+     * Only the listed properties are written, and links are only built when
+     * _links is listed
+     */
+    @GetMapping(value = "/users/{id}", params = "fields")
+    public EntityModel<SparseUser> getUserFields(@PathVariable Integer id, @RequestParam String fields,
+            WebRequest request) {
+        UserFields selection = UserFields.require(fields, UserFields.V3, messages);
+        User user = userDaoService.findOne(id);
+        if (user == null) {
+            throw new StacklessResponseStatusException(HttpStatus.NOT_FOUND,
+                    messages.get("user.not.found", id));
+        }
+        if (request.checkNotModified(UserETags.of(user.getVersion(), request))) {
+            return null;
+        }
+        EntityModel<SparseUser> entityModel = EntityModel.of(selection.project(user, null));
+        if (selection.has(UserFields.Field.LINKS)) {
+            entityModel.add(userLinks.user(id));
+            entityModel.add(userLinks.allUsers(ALL_USERS));
+        }
+        return entityModel;
+    }
+
+    /**
+     * GET /v3/users?fields=id,name
+     * As above for the collection; without _links neither the users nor the
+     * collection carry links, including next/prev
+     */
+    @GetMapping(value = "/users", params = "fields")
+    public CollectionModel<EntityModel<SparseUser>> getAllUsersFields(
+            @RequestParam String fields,
+            @RequestParam(required = false) @Positive(message = "limit must be positive") Integer limit,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer before,
+            WebRequest request) {
+        UserFields selection = UserFields.require(fields, UserFields.V3, messages);
+        if (request.checkNotModified(UserETags.of(userDaoService.getVersion(), request))) {
+            return null;
+        }
+        boolean paged = UserPageLinks.isPaged(limit, after, before);
+        UserPage<User> page = paged ? userDaoService.findPage(after, before, UserPageLinks.limit(limit)) : null;
+        List<User> source = paged ? page.items() : userDaoService.findAll();
+        boolean links = selection.has(UserFields.Field.LINKS);
+
+        List<EntityModel<SparseUser>> users = source.stream()
+                .map(user -> {
+                    EntityModel<SparseUser> entityModel = EntityModel.of(selection.project(user, null));
+                    if (links) {
+                        entityModel.add(userLinks.user(user.getId()));
+                    }
+                    return entityModel;
+                })
+                .collect(Collectors.toList());
 
+        CollectionModel<EntityModel<SparseUser>> collectionModel = CollectionModel.of(users);
+        if (links) {
+            collectionModel.add(Link.of(UserPageLinks.selfUri(), IanaLinkRelations.SELF));
+            if (paged && page.nextAfter() != null) {
+                collectionModel.add(Link.of(UserPageLinks.nextUri(page), IanaLinkRelations.NEXT));
+            }
+            if (paged && page.prevBefore() != null) {
+                collectionModel.add(Link.of(UserPageLinks.prevUri(page), IanaLinkRelations.PREV));
+            }
+        }
         return collectionModel;
     }
 
@@ -100,16 +196,12 @@ public class UserResourcesV3 {
      */
     @PostMapping("/users")
     public ResponseEntity<EntityModel<User>> createUser(@Valid @RequestBody User user) {
-        Locale locale = LocaleContextHolder.getLocale();
-
-        if (user.getId() != null && userDaoService.findOne(user.getId()) != null) {
-            String errorMessage = messageSource.getMessage("user.already.exists", new Object[] { user.getId() },
-                    locale);
-            throw new ResponseStatusException(HttpStatus.CONFLICT, errorMessage);
+        User savedUser = userDaoService.saveIfAbsent(user);
+        if (savedUser == null) {
+            String errorMessage = messages.get("user.already.exists", user.getId());
+            throw new StacklessResponseStatusException(HttpStatus.CONFLICT, errorMessage);
         }
 
-        User savedUser = userDaoService.save(user);
-
         // Build location URI
         java.net.URI location = org.springframework.web.servlet.support.ServletUriComponentsBuilder
                 .fromCurrentRequest()
@@ -119,8 +211,8 @@ public class UserResourcesV3 {
 
         // Create EntityModel with HATEOAS links
         EntityModel<User> entityModel = EntityModel.of(savedUser);
-        entityModel.add(linkTo(methodOn(this.getClass()).getUser(savedUser.getId())).withSelfRel());
-        entityModel.add(linkTo(methodOn(this.getClass()).getAllUsers()).withRel("all-users"));
+        entityModel.add(userLinks.user(savedUser.getId()));
+        entityModel.add(userLinks.allUsers(ALL_USERS));
 
         return ResponseEntity.created(location).body(entityModel);
     }
@@ -132,22 +224,20 @@ public class UserResourcesV3 {
     @DeleteMapping("/users/{id}")
     public ResponseEntity<EntityModel<Object>> deleteUser(
             @PathVariable @Positive(message = "ID must be positive") Integer id) {
-        Locale locale = LocaleContextHolder.getLocale();
-
         User user = userDaoService.findOne(id);
         if (user == null) {
-            String errorMessage = messageSource.getMessage("user.not.found", new Object[] { id }, locale);
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, errorMessage);
+            String errorMessage = messages.get("user.not.found", id);
+            throw new StacklessResponseStatusException(HttpStatus.NOT_FOUND, errorMessage);
         }
 
         userDaoService.delete(id);
 
         // Create response with message and link to remaining users
         java.util.Map<String, Object> response = new java.util.LinkedHashMap<>();
-        response.put("message", messageSource.getMessage("user.deleted.success", null, locale));
+        response.put("message", messages.get("user.deleted.success"));
 
         EntityModel<Object> entityModel = EntityModel.of(response);
-        entityModel.add(linkTo(methodOn(this.getClass()).getAllUsers()).withRel("all-users"));
+        entityModel.add(userLinks.allUsers(ALL_USERS));
 
         return ResponseEntity.ok(entityModel);
     }
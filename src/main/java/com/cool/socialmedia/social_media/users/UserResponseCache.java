@@ -0,0 +1,303 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Answers repeated GET /v1/users, /v2/users and /v3/users with the bytes of
+ * an earlier identical response instead of rebuilding and re-serializing
+ * the list.
+ *
+ * Entries are keyed by request URL (including the query), Accept and
+ * Accept-Language, and remember the store version and day they were
+ * rendered at, so a response rendered across a write is never served once
+ * the write is visible. Every write also clears the cache. The bodies are
+ * bounded by users.response-cache.max-size; a body over a quarter of that is
+ * not cached. Lookups are counted as {@code users.response.cache} tagged hit
+ * or miss.
+ *
+ * Hits take no lock: entries live in a ConcurrentHashMap, and a hit only
+ * marks its entry as used. Eviction approximates least recently used with a
+ * CLOCK sweep run by one storing thread at a time: it evicts entries not
+ * used since the last sweep and gives the others a second chance, so the
+ * bound can be overshot briefly while a sweep is in progress.
+ *
+ * A hit copies the stored headers and body, or answers 304 when
+ * If-None-Match holds the stored ETag, just as the controllers would.
+ */
+@Component
+public class UserResponseCache extends OncePerRequestFilter {
+
+    private static final Set<String> PATHS = Set.of("/v1/users", "/v2/users", "/v3/users");
+
+    private final UserDaoService userDaoService;
+    private final DayClock dayClock;
+    private final long maxSize;
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private final ReentrantLock sweep = new ReentrantLock();
+    private final Counter hits;
+    private final Counter misses;
+
+    public UserResponseCache(UserDaoService userDaoService, DayClock dayClock, MeterRegistry meterRegistry,
+            @Value("${users.response-cache.max-size:16MB}") DataSize maxSize) {
+        this.userDaoService = userDaoService;
+        this.dayClock = dayClock;
+        this.maxSize = maxSize.toBytes();
+        this.hits = meterRegistry.counter("users.response.cache", "result", "hit");
+        this.misses = meterRegistry.counter("users.response.cache", "result", "miss");
+        Gauge.builder("users.response.cache.size", this, UserResponseCache::size)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Streamed lists are written asynchronously and never buffered. The
+        // path is matched without the context path.
+        return !"GET".equals(request.getMethod())
+                || !PATHS.contains(UrlPathHelper.defaultInstance.getPathWithinApplication(request))
+                || request.getParameter("stream") != null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long version = userDaoService.getVersion();
+        LocalDate day = dayClock.today();
+        Key key = Key.of(request);
+
+        Entry entry = get(key, version, day);
+        if (entry != null) {
+            hits.increment();
+            write(entry, request, response);
+            return;
+        }
+        misses.increment();
+
+        ContentCachingResponseWrapper caching = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, caching);
+        if (caching.getStatus() == HttpServletResponse.SC_OK && !request.isAsyncStarted()
+                && caching.getContentSize() <= maxSize / 4) {
+            put(key, Entry.of(version, day, request, caching));
+        }
+        caching.copyBodyToResponse();
+    }
+
+    @EventListener
+    public void onUserEvent(UserEvent event) {
+        for (Map.Entry<Key, Entry> cached : entries.entrySet()) {
+            remove(cached.getKey(), cached.getValue());
+        }
+    }
+
+    long size() {
+        return size.get();
+    }
+
+    private Entry get(Key key, long version, LocalDate day) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.version() != version || !entry.day().equals(day)) {
+            remove(key, entry);
+            return null;
+        }
+        if (!entry.used) {
+            entry.used = true;
+        }
+        return entry;
+    }
+
+    private void put(Key key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        size.addAndGet(entry.body().length - (previous != null ? previous.body().length : 0));
+        if (size.get() > maxSize && sweep.tryLock()) {
+            try {
+                evict(entry);
+            } finally {
+                sweep.unlock();
+            }
+        }
+    }
+
+    // CLOCK sweep: at most two passes, the first clearing the used marks
+    // that earned a second chance. The entry just stored is never evicted.
+    private void evict(Entry stored) {
+        for (int pass = 0; pass < 2 && size.get() > maxSize; pass++) {
+            Iterator<Map.Entry<Key, Entry>> hand = entries.entrySet().iterator();
+            while (size.get() > maxSize && hand.hasNext()) {
+                Map.Entry<Key, Entry> cached = hand.next();
+                Entry entry = cached.getValue();
+                if (entry == stored) {
+                    continue;
+                }
+                if (entry.used) {
+                    entry.used = false;
+                } else {
+                    remove(cached.getKey(), entry);
+                }
+            }
+        }
+    }
+
+    // Only the thread whose removal succeeds gives the bytes back, so the
+    // size stays exact under concurrent clears, sweeps and replacements.
+    private void remove(Key key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            size.addAndGet(-entry.body().length);
+        }
+    }
+
+    private static void write(Entry entry, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        // Lets the http.server.* meters tag the hit like the original request.
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, entry.pattern());
+        request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, entry.handler());
+        ServerHttpObservationFilter.findObservationContext(request)
+                .ifPresent(context -> context.setPathPattern(entry.pattern()));
+
+        for (String[] header : entry.headers()) {
+            response.addHeader(header[0], header[1]);
+        }
+        if (entry.etag() != null && matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), entry.etag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType(entry.contentType());
+        response.setContentLength(entry.body().length);
+        response.getOutputStream().write(entry.body());
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.strip();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private record Key(String url, String accept, String acceptLanguage) {
+
+        static Key of(HttpServletRequest request) {
+            // The full URL, as V3 links and Link headers are absolute.
+            StringBuffer url = request.getRequestURL();
+            if (request.getQueryString() != null) {
+                url.append('?').append(request.getQueryString());
+            }
+            return new Key(url.toString(), request.getHeader(HttpHeaders.ACCEPT),
+                    request.getHeader(HttpHeaders.ACCEPT_LANGUAGE));
+        }
+    }
+
+    private static final class Entry {
+
+        private final long version;
+        private final LocalDate day;
+        private final String contentType;
+        private final String etag;
+        private final List<String[]> headers;
+        private final byte[] body;
+        private final String pattern;
+        private final Object handler;
+        // Set by hits, cleared by the eviction sweep.
+        private volatile boolean used;
+
+        private Entry(long version, LocalDate day, String contentType, String etag, List<String[]> headers,
+                byte[] body, String pattern, Object handler) {
+            this.version = version;
+            this.day = day;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.headers = headers;
+            this.body = body;
+            this.pattern = pattern;
+            this.handler = handler;
+        }
+
+        long version() {
+            return version;
+        }
+
+        LocalDate day() {
+            return day;
+        }
+
+        String contentType() {
+            return contentType;
+        }
+
+        String etag() {
+            return etag;
+        }
+
+        List<String[]> headers() {
+            return headers;
+        }
+
+        byte[] body() {
+            return body;
+        }
+
+        String pattern() {
+            return pattern;
+        }
+
+        Object handler() {
+            return handler;
+        }
+
+        static Entry of(long version, LocalDate day, HttpServletRequest request,
+                ContentCachingResponseWrapper response) {
+            List<String[]> headers = new ArrayList<>();
+            for (String name : response.getHeaderNames()) {
+                if (name.equalsIgnoreCase(HttpHeaders.CONTENT_TYPE) || name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)
+                        || name.equalsIgnoreCase(HttpHeaders.SET_COOKIE)) {
+                    continue;
+                }
+                for (String value : response.getHeaders(name)) {
+                    headers.add(new String[] { name, value });
+                }
+            }
+            return new Entry(version, day, response.getContentType(), response.getHeader(HttpHeaders.ETAG),
+                    List.copyOf(headers), response.getContentAsByteArray(),
+                    request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) instanceof String pattern
+                            ? pattern : null,
+                    request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE));
+        }
+    }
+}
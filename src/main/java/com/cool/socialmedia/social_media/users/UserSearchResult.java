@@ -0,0 +1,10 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.util.List;
+
+/**
+ * One page of a secondary-index search. {@code next} is the cursor for the
+ * following page, or null on the last one.
+ */
+public record UserSearchResult(List<User> items, String next) {
+}
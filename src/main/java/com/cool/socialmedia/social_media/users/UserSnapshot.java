@@ -0,0 +1,101 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary image of the store: a magic number, then one
+ * {@code 1, id, dob, name} record per user, a {@code 0} terminator and a
+ * CRC32C of everything before it. User fields use the journal encoding.
+ *
+ * Snapshots are written to a temporary file, forced and atomically renamed,
+ * so a snapshot file is either complete or absent.
+ */
+final class UserSnapshot {
+
+    private static final int MAGIC = 0x55534E31; // "USN1"
+
+    private UserSnapshot() {
+    }
+
+    /**
+     * @return the number of users written
+     */
+    static long write(Path target, Stream<User> users) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), new CRC32C());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            ByteBuffer record = ByteBuffer.allocate(1024);
+            Iterator<User> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                User user = iterator.next();
+                byte[] name = user.getName() == null ? null : user.getName().getBytes(StandardCharsets.UTF_8);
+                int size = 1 + 4 + 8 + 4 + (name == null ? 0 : name.length);
+                if (size > record.capacity()) {
+                    record = ByteBuffer.allocate(size);
+                }
+                record.clear();
+                record.put((byte) 1).putInt(user.getId());
+                UserJournal.writeUser(user, name, record);
+                out.write(record.array(), 0, record.position());
+                count++;
+            }
+            out.writeByte(0);
+            long crc = checked.getChecksum().getValue();
+            out.writeLong(crc);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return count;
+    }
+
+    /**
+     * Loads a snapshot into {@code users}.
+     *
+     * @throws IOException if the file is truncated or its checksum is wrong
+     */
+    static void read(Path file, Map<Integer, User> users) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16), new CRC32C());
+        try (DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a user snapshot: " + file);
+            }
+            while (in.readByte() == 1) {
+                int id = in.readInt();
+                long dob = in.readLong();
+                int nameLength = in.readInt();
+                String name = nameLength < 0 ? null : new String(in.readNBytes(nameLength), StandardCharsets.UTF_8);
+                users.put(id, new User(id, name, dob == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(dob)));
+            }
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Corrupt user snapshot: " + file);
+            }
+        }
+    }
+}
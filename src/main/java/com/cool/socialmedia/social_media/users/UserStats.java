@@ -0,0 +1,15 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Age statistics over every stored user, as of {@code day}. Users without
+ * a date of birth count towards {@code total} and {@code unknownAge} only;
+ * the age fields are null when no user has one.
+ */
+public record UserStats(long total, long unknownAge, Integer minAge, Integer maxAge, Double medianAge,
+        Map<String, Long> ageBuckets, LocalDate day, @JsonIgnore long version) {
+}
@@ -0,0 +1,483 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * One published state of the user store: every user in id order, tagged
+ * with the store version it was published at.
+ *
+ * A state is never modified once published. The users sit in a persistent
+ * B+tree whose branches count the users below them, so a position, a lookup
+ * by id and a single change all cost O(log n). A write derives the next
+ * state by copying only the nodes on the paths to the ids it changed, and
+ * shares every other node with the previous state, so readers holding a
+ * state keep a consistent view for as long as they need it without locking.
+ * A batch that touches a large part of the store rebuilds the tree in one
+ * O(n) pass instead.
+ */
+final class UserStoreState {
+
+    static final UserStoreState EMPTY = new UserStoreState(0, Leaf.EMPTY);
+
+    // Entries per node; nodes other than the root never hold fewer than MIN.
+    static final int MAX = 64;
+    static final int MIN = MAX / 4;
+
+    private final long version;
+    private final Node root;
+    private final List<User> view = new Users();
+
+    private UserStoreState(long version, Node root) {
+        this.version = version;
+        this.root = root;
+    }
+
+    long version() {
+        return version;
+    }
+
+    int size() {
+        return root.size();
+    }
+
+    /**
+     * All users in id order, as an unmodifiable view. Iterating walks the
+     * leaves in O(n); {@code get} costs O(log n).
+     */
+    List<User> users() {
+        return view;
+    }
+
+    /**
+     * Positions {@code from} (inclusive) to {@code to} (exclusive), as an
+     * unmodifiable view.
+     */
+    List<User> users(int from, int to) {
+        return view.subList(from, to);
+    }
+
+    /**
+     * The position of the first user whose id is at least {@code id}, or
+     * {@link #size()} if there is none.
+     */
+    int ceiling(int id) {
+        return root.position(id, true);
+    }
+
+    /**
+     * The position of the first user whose id is above {@code id}, or
+     * {@link #size()} if there is none.
+     */
+    int higher(int id) {
+        return root.position(id, false);
+    }
+
+    /**
+     * The next state: this one with each id in {@code changes} set to its
+     * user, or removed where the user is null.
+     */
+    UserStoreState with(NavigableMap<Integer, User> changes) {
+        if (changes.size() >= size() / 8) {
+            return new UserStoreState(version + 1, build(merge(changes)));
+        }
+        Node next = root;
+        for (Map.Entry<Integer, User> change : changes.entrySet()) {
+            if (change.getValue() != null) {
+                Node[] split = next.put(change.getValue());
+                next = split.length == 1 ? split[0] : new Branch(split);
+            } else {
+                next = next.remove(change.getKey());
+                if (next instanceof Branch branch && branch.children.length == 1) {
+                    next = branch.children[0];
+                }
+            }
+        }
+        return new UserStoreState(version + 1, next);
+    }
+
+    private User[] merge(NavigableMap<Integer, User> changes) {
+        User[] users = new User[size() + changes.size()];
+        int size = 0;
+        Iterator<User> current = view.iterator();
+        User user = current.hasNext() ? current.next() : null;
+        for (Map.Entry<Integer, User> change : changes.entrySet()) {
+            int id = change.getKey();
+            while (user != null && user.getId() < id) {
+                users[size++] = user;
+                user = current.hasNext() ? current.next() : null;
+            }
+            if (user != null && user.getId() == id) {
+                user = current.hasNext() ? current.next() : null;
+            }
+            if (change.getValue() != null) {
+                users[size++] = change.getValue();
+            }
+        }
+        while (user != null) {
+            users[size++] = user;
+            user = current.hasNext() ? current.next() : null;
+        }
+        return size == users.length ? users : Arrays.copyOf(users, size);
+    }
+
+    // Packs users already in id order into full-enough leaves, then the
+    // nodes of each level into branches, until one node is left.
+    private static Node build(User[] users) {
+        if (users.length <= MAX) {
+            return users.length == 0 ? Leaf.EMPTY : new Leaf(users);
+        }
+        Node[] level = new Node[groups(users.length)];
+        for (int i = 0, from = 0; i < level.length; i++) {
+            int to = (int) ((long) users.length * (i + 1) / level.length);
+            level[i] = new Leaf(Arrays.copyOfRange(users, from, to));
+            from = to;
+        }
+        while (level.length > 1) {
+            Node[] parents = new Node[groups(level.length)];
+            for (int i = 0, from = 0; i < parents.length; i++) {
+                int to = (int) ((long) level.length * (i + 1) / parents.length);
+                parents[i] = new Branch(Arrays.copyOfRange(level, from, to));
+                from = to;
+            }
+            level = parents;
+        }
+        return level[0];
+    }
+
+    private static int groups(int entries) {
+        return (entries + MAX - 1) / MAX;
+    }
+
+    private abstract static class Node {
+
+        abstract int size();
+
+        // Users in a leaf, children in a branch.
+        abstract int width();
+
+        abstract int firstId();
+
+        abstract User get(int index);
+
+        abstract int position(int id, boolean inclusive);
+
+        // The node with the user stored, split in two if it overflowed.
+        abstract Node[] put(User user);
+
+        // The node without the id, possibly below MIN; this node if absent.
+        abstract Node remove(int id);
+
+        abstract Node join(Node right);
+
+        abstract Node[] halves();
+    }
+
+    private static final class Leaf extends Node {
+
+        static final Leaf EMPTY = new Leaf(new User[0]);
+
+        final User[] users;
+
+        Leaf(User[] users) {
+            this.users = users;
+        }
+
+        @Override
+        int size() {
+            return users.length;
+        }
+
+        @Override
+        int width() {
+            return users.length;
+        }
+
+        @Override
+        int firstId() {
+            return users[0].getId();
+        }
+
+        @Override
+        User get(int index) {
+            return users[index];
+        }
+
+        @Override
+        int position(int id, boolean inclusive) {
+            int low = 0;
+            int high = users.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int midId = users[mid].getId();
+                if (midId < id || (!inclusive && midId == id)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        @Override
+        Node[] put(User user) {
+            int i = position(user.getId(), true);
+            if (i < users.length && users[i].getId().equals(user.getId())) {
+                User[] next = users.clone();
+                next[i] = user;
+                return new Node[] { new Leaf(next) };
+            }
+            User[] next = new User[users.length + 1];
+            System.arraycopy(users, 0, next, 0, i);
+            next[i] = user;
+            System.arraycopy(users, i, next, i + 1, users.length - i);
+            Leaf leaf = new Leaf(next);
+            return next.length > MAX ? leaf.halves() : new Node[] { leaf };
+        }
+
+        @Override
+        Node remove(int id) {
+            int i = position(id, true);
+            if (i == users.length || users[i].getId() != id) {
+                return this;
+            }
+            User[] next = new User[users.length - 1];
+            System.arraycopy(users, 0, next, 0, i);
+            System.arraycopy(users, i + 1, next, i, next.length - i);
+            return new Leaf(next);
+        }
+
+        @Override
+        Node join(Node right) {
+            User[] other = ((Leaf) right).users;
+            User[] next = Arrays.copyOf(users, users.length + other.length);
+            System.arraycopy(other, 0, next, users.length, other.length);
+            return new Leaf(next);
+        }
+
+        @Override
+        Node[] halves() {
+            int half = users.length / 2;
+            return new Node[] { new Leaf(Arrays.copyOfRange(users, 0, half)),
+                    new Leaf(Arrays.copyOfRange(users, half, users.length)) };
+        }
+    }
+
+    private static final class Branch extends Node {
+
+        final Node[] children;
+        // ends[i] is the number of users in children 0 to i.
+        final int[] ends;
+        final int[] firstIds;
+
+        Branch(Node[] children) {
+            this.children = children;
+            this.ends = new int[children.length];
+            this.firstIds = new int[children.length];
+            int size = 0;
+            for (int i = 0; i < children.length; i++) {
+                size += children[i].size();
+                ends[i] = size;
+                firstIds[i] = children[i].firstId();
+            }
+        }
+
+        @Override
+        int size() {
+            return ends[ends.length - 1];
+        }
+
+        @Override
+        int width() {
+            return children.length;
+        }
+
+        @Override
+        int firstId() {
+            return firstIds[0];
+        }
+
+        @Override
+        User get(int index) {
+            int low = 0;
+            int high = ends.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ends[mid] <= index) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return children[low].get(index - start(low));
+        }
+
+        @Override
+        int position(int id, boolean inclusive) {
+            int i = child(id);
+            return start(i) + children[i].position(id, inclusive);
+        }
+
+        @Override
+        Node[] put(User user) {
+            int i = child(user.getId());
+            Node[] replacement = children[i].put(user);
+            Node[] next = replace(i, 1, replacement);
+            Branch branch = new Branch(next);
+            return next.length > MAX ? branch.halves() : new Node[] { branch };
+        }
+
+        @Override
+        Node remove(int id) {
+            int i = child(id);
+            Node child = children[i].remove(id);
+            if (child == children[i]) {
+                return this;
+            }
+            if (child.width() == 0) {
+                return new Branch(replace(i, 1));
+            }
+            if (child.width() >= MIN || children.length == 1) {
+                return new Branch(replace(i, 1, child));
+            }
+            // Too small on its own: merge with a neighbour, and split the
+            // result again if it is too big.
+            int left = i > 0 ? i - 1 : i;
+            Node joined = left < i ? children[left].join(child) : child.join(children[i + 1]);
+            return new Branch(replace(left, 2, joined.width() > MAX ? joined.halves() : new Node[] { joined }));
+        }
+
+        @Override
+        Node join(Node right) {
+            Node[] other = ((Branch) right).children;
+            Node[] next = Arrays.copyOf(children, children.length + other.length);
+            System.arraycopy(other, 0, next, children.length, other.length);
+            return new Branch(next);
+        }
+
+        @Override
+        Node[] halves() {
+            int half = children.length / 2;
+            return new Node[] { new Branch(Arrays.copyOfRange(children, 0, half)),
+                    new Branch(Arrays.copyOfRange(children, half, children.length)) };
+        }
+
+        // The last child whose first id is at most id, or the first child.
+        private int child(int id) {
+            int low = 1;
+            int high = firstIds.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (firstIds[mid] <= id) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low - 1;
+        }
+
+        private int start(int i) {
+            return i == 0 ? 0 : ends[i - 1];
+        }
+
+        // The children with count of them from position i swapped for the
+        // replacement.
+        private Node[] replace(int i, int count, Node... replacement) {
+            Node[] next = new Node[children.length - count + replacement.length];
+            System.arraycopy(children, 0, next, 0, i);
+            System.arraycopy(replacement, 0, next, i, replacement.length);
+            System.arraycopy(children, i + count, next, i + replacement.length, children.length - i - count);
+            return next;
+        }
+    }
+
+    private final class Users extends AbstractList<User> {
+
+        @Override
+        public User get(int index) {
+            if (index < 0 || index >= root.size()) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return root.get(index);
+        }
+
+        @Override
+        public int size() {
+            return root.size();
+        }
+
+        @Override
+        public Iterator<User> iterator() {
+            return new Walk(root);
+        }
+
+        @Override
+        public void forEach(Consumer<? super User> action) {
+            Walk walk = new Walk(root);
+            while (walk.hasNext()) {
+                action.accept(walk.next());
+            }
+        }
+    }
+
+    // Visits the leaves left to right, keeping the path to the current one.
+    // Every leaf sits at the same depth.
+    private static final class Walk implements Iterator<User> {
+
+        private final Branch[] path;
+        private final int[] next;
+        private User[] leaf;
+        private int index;
+
+        Walk(Node root) {
+            int depth = 0;
+            for (Node node = root; node instanceof Branch branch; node = branch.children[0]) {
+                depth++;
+            }
+            path = new Branch[depth];
+            next = new int[depth];
+            descend(root, 0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (index == leaf.length) {
+                int depth = path.length - 1;
+                while (depth >= 0 && next[depth] == path[depth].children.length) {
+                    depth--;
+                }
+                if (depth < 0) {
+                    return false;
+                }
+                descend(path[depth].children[next[depth]++], depth + 1);
+            }
+            return true;
+        }
+
+        @Override
+        public User next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return leaf[index++];
+        }
+
+        private void descend(Node node, int depth) {
+            while (node instanceof Branch branch) {
+                path[depth] = branch;
+                next[depth] = 1;
+                node = branch.children[0];
+                depth++;
+            }
+            leaf = ((Leaf) node).users;
+            index = 0;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Writes user collections to the response one element at a time, so the
+ * full list is never materialized. JSON goes through the application's
+ * JsonMapper, so the output matches what the regular endpoints produce.
+ */
+@Component
+public class UserStreamWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    // Leaves the response stream open so wrappers such as gzip can finish it
+    private final ObjectWriter jsonWriter;
+    private final XmlMapper xmlMapper;
+    private final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newFactory();
+
+    public UserStreamWriter(JsonMapper jsonMapper) {
+        this.jsonWriter = jsonMapper.writer().without(StreamWriteFeature.AUTO_CLOSE_TARGET);
+        this.xmlMapper = XmlMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    public StreamingResponseBody jsonArray(Stream<?> items) {
+        return outputStream -> {
+            try (items; JsonGenerator generator = jsonWriter.createGenerator(outputStream)) {
+                generator.writeStartArray();
+                Iterator<?> iterator = items.iterator();
+                while (iterator.hasNext()) {
+                    generator.writePOJO(iterator.next());
+                }
+                generator.writeEndArray();
+            }
+        };
+    }
+
+    /**
+     * {@code <users>} document with one {@code <User>} element per user.
+     */
+    public StreamingResponseBody xml(Stream<User> users) {
+        return outputStream -> {
+            try (users) {
+                XMLStreamWriter writer = xmlOutputFactory.createXMLStreamWriter(outputStream, "UTF-8");
+                writer.writeStartDocument("UTF-8", "1.0");
+                writer.writeStartElement("users");
+                Iterator<User> iterator = users.iterator();
+                while (iterator.hasNext()) {
+                    xmlMapper.writeValue(writer, iterator.next());
+                }
+                writer.writeEndElement();
+                writer.writeEndDocument();
+                writer.close();
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException("Failed to write users as XML", e);
+            }
+        };
+    }
+
+    /**
+     * {@code id,name,dob} rows under a header row, in the same layout the
+     * bulk import accepts.
+     */
+    public StreamingResponseBody csv(Stream<User> users) {
+        return outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8),
+                    BUFFER_SIZE);
+            try (users) {
+                writer.write("id,name,dob\n");
+                Iterator<User> iterator = users.iterator();
+                while (iterator.hasNext()) {
+                    User user = iterator.next();
+                    writer.write(String.valueOf(user.getId()));
+                    writer.write(',');
+                    writeCsvField(writer, user.getName());
+                    writer.write(',');
+                    if (user.getDob() != null) {
+                        writer.write(user.getDob().toString());
+                    }
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+        };
+    }
+
+    /**
+     * Whether an Accept-Encoding value allows gzip: listed with a non-zero
+     * q-value, or not listed and covered by a non-zero {@code *}. A malformed
+     * q-value counts as zero.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].strip();
+            double q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].strip();
+                if (param.length() > 2 && param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equalsIgnoreCase("gzip")) {
+                gzip = q;
+            } else if (coding.equals("*")) {
+                any = q;
+            }
+        }
+        return gzip != null ? gzip > 0 : any != null && any > 0;
+    }
+
+    public StreamingResponseBody gzip(StreamingResponseBody body) {
+        return outputStream -> {
+            GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+            body.writeTo(gzipStream);
+            gzipStream.finish();
+        };
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -21,20 +21,32 @@ public class UserV2 {
     }
 
     public UserV2(User user) {
+        this(user, LocalDate.now());
+    }
+
+    /**
+     * Computes the age against the given date, so callers projecting many
+     * users can share one clock read (see {@link UserV2Projections}).
+     */
+    public UserV2(User user, LocalDate today) {
         this.id = user.getId();
         this.name = user.getName();
         this.dob = user.getDob();
 
         // Compute enhanced fields
-        this.fullName = user.getName() != null ? "Mr./Ms. " + user.getName() : null;
-        this.age = calculateAge(user.getDob());
+        this.fullName = fullName(user.getName());
+        this.age = calculateAge(user.getDob(), today);
+    }
+
+    static String fullName(String name) {
+        return name != null ? "Mr./Ms. " + name : null;
     }
 
-    private Integer calculateAge(LocalDate birthDate) {
+    static Integer calculateAge(LocalDate birthDate, LocalDate today) {
         if (birthDate == null) {
             return null;
         }
-        return Period.between(birthDate, LocalDate.now()).getYears();
+        return Period.between(birthDate, today).getYears();
     }
 
     // Getters and Setters
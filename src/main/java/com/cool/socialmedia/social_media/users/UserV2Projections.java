@@ -0,0 +1,55 @@
+package com.cool.socialmedia.social_media.users;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches the {@link UserV2} view of each user.
+ *
+ * An entry is reused while it was built from the same stored User instance
+ * on the same day; a replaced user or a new day rebuilds it lazily. Deletes
+ * and replacements also evict the entry so the cache does not outlive the
+ * store.
+ */
+@Component
+public class UserV2Projections {
+
+    private final ConcurrentMap<Integer, Entry> projections = new ConcurrentHashMap<>();
+    private final DayClock dayClock;
+
+    public UserV2Projections(DayClock dayClock) {
+        this.dayClock = dayClock;
+    }
+
+    /**
+     * The day ages are currently computed for.
+     */
+    public LocalDate today() {
+        return dayClock.today();
+    }
+
+    public UserV2 of(User user) {
+        LocalDate today = dayClock.today();
+        Entry entry = projections.get(user.getId());
+        if (entry != null && entry.user() == user && entry.day().equals(today)) {
+            return entry.projection();
+        }
+        UserV2 projection = new UserV2(user, today);
+        projections.put(user.getId(), new Entry(user, today, projection));
+        return projection;
+    }
+
+    @EventListener
+    public void onUserEvent(UserEvent event) {
+        if (event.type() != UserEvent.Type.CREATED) {
+            projections.remove(event.user().getId());
+        }
+    }
+
+    private record Entry(User user, LocalDate day, UserV2 projection) {
+    }
+}
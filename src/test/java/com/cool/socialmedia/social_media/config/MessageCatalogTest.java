@@ -0,0 +1,70 @@
+package com.cool.socialmedia.social_media.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+
+class MessageCatalogTest {
+
+    @Test
+    void formatsLikeTheMessageSourceForEveryCodeAndLocale() throws IOException {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        MessageCatalog catalog = new LocaleConfig().messageCatalog(messageSource, "messages");
+
+        Set<String> codes = PropertiesLoaderUtils.loadAllProperties("messages.properties").stringPropertyNames();
+        assertThat(codes).contains("user.not.found", "user.events.busy");
+        for (Locale locale : List.of(Locale.US, Locale.FRENCH, Locale.FRANCE, Locale.of("hi", "IN"), Locale.GERMAN)) {
+            for (String code : codes) {
+                assertThat(catalog.get(code, null, locale))
+                        .isEqualTo(messageSource.getMessage(code, null, locale));
+                Object[] args = { 12345 };
+                assertThat(catalog.get(code, args, locale))
+                        .isEqualTo(messageSource.getMessage(code, args, locale));
+            }
+        }
+    }
+
+    @Test
+    void formatsConcurrentlyWithoutMixingArguments() throws Exception {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        MessageCatalog catalog = new LocaleConfig().messageCatalog(messageSource, "messages");
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                results.add(pool.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        int id = thread * 100 + i % 100;
+                        if (!catalog.get("user.not.found", new Object[] { id }, Locale.US)
+                                .equals("User with id " + id + " not found")) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
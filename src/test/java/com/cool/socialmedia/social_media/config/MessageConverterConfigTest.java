@@ -0,0 +1,86 @@
+package com.cool.socialmedia.social_media.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.PropertyNamingStrategies;
+import tools.jackson.databind.cfg.DateTimeFeature;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MessageConverterConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CBORMapper cborMapper;
+
+    @Autowired
+    private SmileMapper smileMapper;
+
+    @Test
+    void servesJsonUnlessABinaryTypeIsAskedFor() throws Exception {
+        mockMvc.perform(get("/v1/users/1").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.name").value("John"));
+        mockMvc.perform(get("/v1/users/1"))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void servesTheVendorBinaryTypes() throws Exception {
+        byte[] cbor = mockMvc.perform(get("/v1/users/accept/1").accept("application/vnd.socialmedia.app-v1+cbor"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/vnd.socialmedia.app-v1+cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertThat(cborMapper.readTree(cbor).get("name").asString()).isEqualTo("John");
+
+        byte[] smile = mockMvc.perform(get("/v2/users/accept/1").accept("application/vnd.socialmedia.app-v2+smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/vnd.socialmedia.app-v2+smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertThat(smileMapper.readTree(smile).get("fullName").asString()).isEqualTo("Mr./Ms. John");
+
+        mockMvc.perform(get("/v1/users/accept/1").accept("application/vnd.socialmedia.app-v1+json"))
+                .andExpect(content().contentType("application/vnd.socialmedia.app-v1+json"));
+    }
+
+    @Test
+    void smileMapperFollowsTheJsonMapperSettings() {
+        JsonMapper jsonMapper = JsonMapper.builder()
+                .propertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE)
+                .changeDefaultPropertyInclusion(inclusion -> inclusion.withValueInclusion(JsonInclude.Include.NON_NULL))
+                .enable(DateTimeFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        SmileMapper smile = new MessageConverterConfig().smileMapper(jsonMapper);
+        Sample sample = new Sample("Ann", null, LocalDate.of(2000, 1, 2));
+
+        JsonNode expected = jsonMapper.readTree(jsonMapper.writeValueAsString(sample));
+        assertThat(expected.has("first_name")).isTrue();
+        assertThat(expected.has("last_name")).isFalse();
+        assertThat(smile.readTree(smile.writeValueAsBytes(sample))).isEqualTo(expected);
+    }
+
+    record Sample(String firstName, String lastName, LocalDate born) {
+    }
+}
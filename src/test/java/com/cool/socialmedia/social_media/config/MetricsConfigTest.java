@@ -0,0 +1,117 @@
+package com.cool.socialmedia.social_media.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The meters behind /actuator/metrics. The context and its registry are
+ * shared with other tests, so counts are compared before and after.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class MetricsConfigTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    void usesASimpleMeterRegistry() {
+        assertThat(registry).isInstanceOf(SimpleMeterRegistry.class);
+    }
+
+    @Test
+    void recordsTheResponseSizePerUriPattern() throws Exception {
+        long before = count(sizes("/v1/users/{id}"));
+
+        int length = mockMvc.perform(get("/v1/users/2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray().length;
+
+        DistributionSummary sizes = sizes("/v1/users/{id}");
+        assertThat(sizes.count()).isEqualTo(before + 1);
+        assertThat(sizes.max()).isGreaterThanOrEqualTo(length);
+        assertThat(sizes.getId().getBaseUnit()).isEqualTo("bytes");
+    }
+
+    @Test
+    void countsTheBytesOfStreamedResponsesOnCompletion() throws Exception {
+        long before = count(sizes("/v1/users"));
+
+        MvcResult started = mockMvc.perform(get("/v1/users?stream=true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        int length = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray().length;
+
+        DistributionSummary sizes = sizes("/v1/users");
+        assertThat(sizes.count()).isEqualTo(before + 1);
+        assertThat(sizes.max()).isGreaterThanOrEqualTo(length);
+    }
+
+    @Test
+    void tagsRequestsWithTheHandlerMethod() throws Exception {
+        long v1 = count(requests("UserResourcesV1.getUser"));
+        long v2 = count(requests("UserResourcesV2.getUserByHeader"));
+
+        mockMvc.perform(get("/v1/users/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/v2/users/header/1").header("X-API-VERSION", "2")).andExpect(status().isOk());
+
+        assertThat(requests("UserResourcesV1.getUser").count()).isEqualTo(v1 + 1);
+        assertThat(requests("UserResourcesV1.getUser").getId().getTag("uri")).isEqualTo("/v1/users/{id}");
+        assertThat(count(requests("UserResourcesV2.getUserByHeader"))).isEqualTo(v2 + 1);
+    }
+
+    @Test
+    void timesEveryStoreOperationTheRequestRuns() throws Exception {
+        long findOne = count(dao("findOne"));
+        long findAllById = count(dao("findAllById"));
+
+        mockMvc.perform(get("/v1/users/3")).andExpect(status().isOk());
+
+        assertThat(dao("findOne").count()).isEqualTo(findOne + 1);
+        assertThat(dao("findAllById").count()).isEqualTo(findAllById);
+        assertThat(dao("findOne").totalTime(TimeUnit.NANOSECONDS)).isPositive();
+        assertThat(registry.get("users.store.size").gauge().value()).isGreaterThanOrEqualTo(3);
+    }
+
+    private DistributionSummary sizes(String uri) {
+        return registry.find("http.server.response.size").tag("uri", uri).summary();
+    }
+
+    private Timer requests(String handler) {
+        return registry.find("http.server.requests").tag("handler", handler).timer();
+    }
+
+    private Timer dao(String operation) {
+        return registry.get("users.dao").tag("operation", operation).timer();
+    }
+
+    private static long count(DistributionSummary summary) {
+        return summary == null ? 0 : summary.count();
+    }
+
+    private static long count(Timer timer) {
+        return timer == null ? 0 : timer.count();
+    }
+}
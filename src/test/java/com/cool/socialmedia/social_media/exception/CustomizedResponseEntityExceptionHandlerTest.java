@@ -0,0 +1,69 @@
+package com.cool.socialmedia.social_media.exception;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.xpath;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class CustomizedResponseEntityExceptionHandlerTest {
+
+    private static final Map<String, String> NAMESPACES = Map.of("p", "urn:ietf:rfc:7807");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void writesTheNotFoundProblemAsJsonByDefault() throws Exception {
+        for (String accept : new String[] { "*/*", "application/json", "application/problem+json" }) {
+            mockMvc.perform(delete("/v1/users/987").header(HttpHeaders.ACCEPT, accept))
+                    .andExpect(status().isNotFound())
+                    .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                    .andExpect(jsonPath("$.detail").value("User with id 987 not found"))
+                    .andExpect(jsonPath("$.instance").value("/v1/users/987"));
+        }
+    }
+
+    @Test
+    void writesTheNotFoundProblemAsXmlWhenXmlIsAccepted() throws Exception {
+        for (String accept : new String[] { "application/xml", "application/problem+xml",
+                "application/json;q=0.5, text/xml" }) {
+            mockMvc.perform(delete("/v1/users/987").header(HttpHeaders.ACCEPT, accept))
+                    .andExpect(status().isNotFound())
+                    .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_XML))
+                    .andExpect(xpath("/p:problem/p:detail", NAMESPACES).string("User with id 987 not found"))
+                    .andExpect(xpath("/p:problem/p:status", NAMESPACES).string("404"))
+                    .andExpect(xpath("/p:problem/p:instance", NAMESPACES).string("/v1/users/987"));
+        }
+    }
+
+    @Test
+    void picksTheProblemTypeFromTheMostPreferredMediaType() {
+        assertThat(CustomizedResponseEntityExceptionHandler.problemType(null))
+                .isEqualTo(MediaType.APPLICATION_PROBLEM_JSON);
+        assertThat(CustomizedResponseEntityExceptionHandler.problemType("*/*"))
+                .isEqualTo(MediaType.APPLICATION_PROBLEM_JSON);
+        assertThat(CustomizedResponseEntityExceptionHandler.problemType("application/xml;q=0.5, application/json"))
+                .isEqualTo(MediaType.APPLICATION_PROBLEM_JSON);
+        assertThat(CustomizedResponseEntityExceptionHandler.problemType("application/json;q=0.5, application/xml"))
+                .isEqualTo(MediaType.APPLICATION_PROBLEM_XML);
+        assertThat(CustomizedResponseEntityExceptionHandler.problemType("application/xml, */*;q=0.1"))
+                .isEqualTo(MediaType.APPLICATION_PROBLEM_XML);
+        assertThat(CustomizedResponseEntityExceptionHandler.problemType("application/cbor")).isNull();
+        assertThat(CustomizedResponseEntityExceptionHandler.problemType("application/json;q=0")).isNull();
+        assertThat(CustomizedResponseEntityExceptionHandler.problemType("not a type")).isNull();
+    }
+}
@@ -0,0 +1,35 @@
+package com.cool.socialmedia.social_media.exception;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.converter.json.ProblemDetailJacksonMixin;
+
+import tools.jackson.databind.json.JsonMapper;
+
+class ProblemBodiesTest {
+
+    private final JsonMapper jsonMapper = JsonMapper.builder()
+            .addMixIn(ProblemDetail.class, ProblemDetailJacksonMixin.class)
+            .build();
+
+    @Test
+    void matchesTheSerializedProblemDetail() {
+        String[] details = { "User with id 99 not found", "Utilisateur avec l'id 7 existe déjà",
+                "आईडी 3 वाला उपयोगकर्ता नहीं मिला", "quote \" backslash \\ tab \t newline \n nul \u0000" };
+        for (HttpStatus status : new HttpStatus[] { HttpStatus.NOT_FOUND, HttpStatus.CONFLICT, HttpStatus.GONE }) {
+            for (String detail : details) {
+                ProblemDetail problem = ProblemDetail.forStatusAndDetail(status, detail);
+                problem.setInstance(URI.create("/v1/users/99"));
+
+                assertThat(new String(ProblemBodies.of(status.value(), detail, "/v1/users/99"), StandardCharsets.UTF_8))
+                        .isEqualTo(jsonMapper.writeValueAsString(problem));
+            }
+        }
+    }
+}
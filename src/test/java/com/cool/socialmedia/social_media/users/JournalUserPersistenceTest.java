@@ -0,0 +1,124 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+class JournalUserPersistenceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversFromSnapshotAndJournalTail() throws Exception {
+        JournalUserPersistence persistence = newPersistence();
+        UserDaoService userDaoService = new UserDaoService(persistence, event -> {
+        });
+        List<User> batch = new ArrayList<>();
+        for (int id = 10; id < 5010; id++) {
+            batch.add(new User(id, "user-" + id, LocalDate.of(1990, 1, 1).plusDays(id)));
+        }
+        userDaoService.saveAllIfAbsent(batch);
+        userDaoService.delete(2);
+        persistence.snapshot();
+
+        userDaoService.save(new User(10, "renamed", null));
+        userDaoService.delete(11);
+        userDaoService.saveIfAbsent(new User(null, "Zoë", LocalDate.of(2000, 2, 29)));
+        Map<Integer, String> expected = names(userDaoService.findAll());
+        persistence.destroy();
+
+        JournalUserPersistence reopened = newPersistence();
+        assertThat(names(new UserDaoService(reopened, event -> {
+        }).findAll())).isEqualTo(expected);
+        reopened.destroy();
+    }
+
+    @Test
+    void ignoresATornRecordAtTheEndOfTheJournal() throws Exception {
+        JournalUserPersistence persistence = newPersistence();
+        UserDaoService userDaoService = new UserDaoService(persistence, event -> {
+        });
+        userDaoService.save(new User(7, "Seven", LocalDate.of(1990, 7, 7)));
+        persistence.destroy();
+
+        Path journal;
+        try (Stream<Path> files = Files.list(directory)) {
+            journal = files.filter(file -> file.toString().endsWith(".log")).max(Path::compareTo).orElseThrow();
+        }
+        Files.write(journal, new byte[] { 0, 0, 0, 40, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+        JournalUserPersistence reopened = newPersistence();
+        assertThat(names(reopened.loadAll())).containsOnlyKeys(1, 2, 3, 7);
+        reopened.destroy();
+    }
+
+    @Test
+    void leavesOutAWriteWhoseAppendFailsDuringTheSnapshot() throws Exception {
+        JournalUserPersistence persistence = newPersistence();
+        // User 8 is already in memory when the snapshot runs, and its append
+        // fails right after.
+        UserPersistence failing = new UserPersistence() {
+            @Override
+            public List<User> loadAll() {
+                return persistence.loadAll();
+            }
+
+            @Override
+            public void insertAll(Collection<User> users) {
+                persistence.insertAll(users);
+            }
+
+            @Override
+            public void save(User user) {
+                if (user.getId() == 8) {
+                    try {
+                        persistence.snapshot();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    throw new UncheckedIOException(new IOException("disk full"));
+                }
+                persistence.save(user);
+            }
+        };
+        UserDaoService userDaoService = new UserDaoService(failing, event -> {
+        });
+        userDaoService.save(new User(7, "Seven", LocalDate.of(1990, 7, 7)));
+
+        assertThatThrownBy(() -> userDaoService.save(new User(8, "Eight", LocalDate.of(1990, 8, 8))))
+                .hasMessageContaining("disk full");
+        assertThat(userDaoService.findOne(8)).isNull();
+        persistence.destroy();
+
+        JournalUserPersistence reopened = newPersistence();
+        assertThat(names(reopened.loadAll())).containsOnlyKeys(1, 2, 3, 7);
+        reopened.destroy();
+    }
+
+    private JournalUserPersistence newPersistence() throws Exception {
+        return new JournalUserPersistence(directory, UserJournal.FsyncPolicy.ALWAYS, DataSize.ofKilobytes(64));
+    }
+
+    private static Map<Integer, String> names(List<User> users) {
+        Map<Integer, String> names = new TreeMap<>();
+        users.forEach(user -> names.put(user.getId(), user.getName() + "/" + user.getDob()));
+        return names;
+    }
+}
@@ -0,0 +1,108 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+/**
+ * The jpa profile against an in-memory H2 database, with JDBC batches small
+ * enough that a few dozen users span several of them. The database lives as
+ * long as the context, so every test uses its own ids.
+ */
+@SpringBootTest(properties = {
+        "spring.profiles.active=jpa",
+        "spring.datasource.url=jdbc:h2:mem:jpa-user-persistence;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=7" })
+class JpaUserPersistenceTest {
+
+    private static final LocalDate DOB = LocalDate.of(1990, 1, 1);
+
+    @Autowired
+    private UserDaoService userDaoService;
+
+    @Autowired
+    private UserPersistence persistence;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void writesEveryChangeThrough() {
+        userDaoService.save(new User(9001, "Ada", DOB));
+        assertThat(userRepository.findById(9001)).get().extracting(User::getName).isEqualTo("Ada");
+
+        userDaoService.save(new User(9001, "Ada Lovelace", DOB));
+        assertThat(userRepository.findById(9001)).get().extracting(User::getName).isEqualTo("Ada Lovelace");
+
+        userDaoService.delete(9001);
+        assertThat(userRepository.findById(9001)).isEmpty();
+    }
+
+    @Test
+    void reloadsTheStoreOnRestart() {
+        userDaoService.save(new User(9010, "Grace", DOB));
+        userDaoService.saveIfAbsent(new User(null, "Generated", DOB));
+
+        UserDaoService restarted = new UserDaoService(persistence, event -> {
+        });
+
+        assertThat(names(restarted.findAll())).isEqualTo(names(userDaoService.findAll()));
+        assertThat(restarted.findOne(9010).getName()).isEqualTo("Grace");
+    }
+
+    @Test
+    void insertsAndDeletesBatchesLargerThanOneJdbcBatch() {
+        List<User> batch = new ArrayList<>();
+        for (int id = 9100; id < 9120; id++) {
+            batch.add(new User(id, "user-" + id, DOB));
+        }
+        List<Integer> ids = IntStream.range(9100, 9120).boxed().toList();
+
+        assertThat(userDaoService.saveAllIfAbsent(batch).isEmpty()).isTrue();
+        assertThat(userRepository.findAllById(ids)).hasSize(20);
+
+        List<Integer> doomed = new ArrayList<>(ids.subList(0, 15));
+        doomed.add(9999);
+        assertThat(userDaoService.deleteAll(doomed).stream()).containsExactly(15);
+        assertThat(userRepository.findAllById(ids)).extracting(User::getId)
+                .containsExactlyInAnyOrder(9115, 9116, 9117, 9118, 9119);
+    }
+
+    @Test
+    void rollsBackWhatTheDatabaseRefuses() {
+        // Only the database knows 9200, so the store lets the insert through
+        // and the primary key stops it. The row is removed again so other
+        // tests find the database matching the store.
+        userRepository.save(new User(9200, "Ghost", DOB));
+        try {
+            assertThatThrownBy(() -> userDaoService.saveIfAbsent(new User(9200, "Clash", DOB)))
+                    .isInstanceOf(DataIntegrityViolationException.class);
+            assertThat(userDaoService.findOne(9200)).isNull();
+
+            assertThatThrownBy(() -> userDaoService.saveAllIfAbsent(List.of(new User(9201, "Fresh", DOB),
+                    new User(9200, "Clash", DOB)))).isInstanceOf(DataIntegrityViolationException.class);
+            assertThat(userDaoService.findOne(9201)).isNull();
+            assertThat(userRepository.findById(9201)).isEmpty();
+            assertThat(userRepository.findById(9200)).get().extracting(User::getName).isEqualTo("Ghost");
+        } finally {
+            userRepository.deleteById(9200);
+        }
+    }
+
+    private static Map<Integer, String> names(List<User> users) {
+        Map<Integer, String> names = new TreeMap<>();
+        users.forEach(user -> names.put(user.getId(), user.getName()));
+        return names;
+    }
+}
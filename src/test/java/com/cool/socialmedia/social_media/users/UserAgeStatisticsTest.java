@@ -0,0 +1,131 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class UserAgeStatisticsTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-03-14T12:00:00Z"));
+
+    @Test
+    void matchesAFullScanAfterConcurrentWritesAndADayRollover() throws Exception {
+        UserAgeStatistics[] statistics = new UserAgeStatistics[1];
+        UserDaoService userDaoService = new UserDaoService(UserPersistence.NONE,
+                event -> statistics[0].onUserEvent((UserEvent) event));
+        statistics[0] = new UserAgeStatistics(userDaoService, new DayClock(clock));
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 5000; i++) {
+                        int id = 1 + random.nextInt(500);
+                        if (random.nextInt(4) == 0) {
+                            userDaoService.delete(id);
+                        } else {
+                            LocalDate dob = random.nextInt(10) == 0 ? null
+                                    : LocalDate.of(1940, 3, 10).plusDays(random.nextInt(30000));
+                            userDaoService.save(new User(id, "user-" + id, dob));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(statistics[0].stats()).isEqualTo(scan(userDaoService, LocalDate.of(2026, 3, 14), statistics[0]));
+
+        clock.instant = clock.instant.plusSeconds(86_400 * 400);
+        UserStats rolledOver = statistics[0].stats();
+        assertThat(rolledOver.day()).isEqualTo(LocalDate.of(2027, 4, 18));
+        assertThat(rolledOver).isEqualTo(scan(userDaoService, rolledOver.day(), statistics[0]));
+    }
+
+    @Test
+    void reportsEmptyStoresWithoutAges() {
+        UserDaoService userDaoService = new UserDaoService(UserPersistence.NONE, event -> {
+        });
+        userDaoService.findAll().forEach(user -> userDaoService.delete(user.getId()));
+        UserStats stats = new UserAgeStatistics(userDaoService, new DayClock(clock)).stats();
+
+        assertThat(stats.total()).isZero();
+        assertThat(stats.minAge()).isNull();
+        assertThat(stats.medianAge()).isNull();
+        assertThat(stats.ageBuckets()).containsOnlyKeys("0-17", "18-24", "25-34", "35-44", "45-54", "55-64", "65+");
+    }
+
+    // Brute-force equivalent of UserAgeStatistics, with its version copied
+    // since that only counts events.
+    private static UserStats scan(UserDaoService userDaoService, LocalDate day, UserAgeStatistics statistics) {
+        List<User> users = userDaoService.findAll();
+        List<Integer> ages = users.stream()
+                .map(User::getDob)
+                .filter(Objects::nonNull)
+                .map(dob -> Math.max(0, Period.between(dob, day).getYears()))
+                .sorted()
+                .toList();
+        java.util.Map<String, Long> buckets = new java.util.LinkedHashMap<>();
+        String[] names = { "0-17", "18-24", "25-34", "35-44", "45-54", "55-64", "65+" };
+        int[] starts = { 0, 18, 25, 35, 45, 55, 65, Integer.MAX_VALUE };
+        for (int b = 0; b < names.length; b++) {
+            int from = starts[b];
+            int to = starts[b + 1];
+            buckets.put(names[b], ages.stream().filter(age -> age >= from && age < to).count());
+        }
+        int n = ages.size();
+        Double median = n == 0 ? null : (ages.get((n - 1) / 2) + ages.get(n / 2)) / 2.0;
+        return new UserStats(users.size(), users.size() - n, n == 0 ? null : ages.get(0),
+                n == 0 ? null : ages.get(n - 1), median, buckets, day, statistics.stats().version());
+    }
+
+    private static final class MutableClock extends Clock {
+
+        volatile Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+/**
+ * POST /v1/users:batchGet and :batchDelete. The context is shared with
+ * other tests, so deletes only touch ids created here.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserBatchEndpointsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserDaoService userDaoService;
+
+    @Test
+    void getsEachIdInRequestOrder() throws Exception {
+        batch("batchGet", "[3, 999, 1, 3]")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results.length()").value(4))
+                .andExpect(jsonPath("$.results[0].status").value(200))
+                .andExpect(jsonPath("$.results[0].user.name").value("Bob"))
+                .andExpect(jsonPath("$.results[1].id").value(999))
+                .andExpect(jsonPath("$.results[1].status").value(404))
+                .andExpect(jsonPath("$.results[1].message").value("User with id 999 not found"))
+                .andExpect(jsonPath("$.results[1].user").doesNotExist())
+                .andExpect(jsonPath("$.results[2].user.name").value("John"))
+                .andExpect(jsonPath("$.results[3].user.name").value("Bob"));
+    }
+
+    @Test
+    void deletesEachIdOnceAndReportsRepeatsAsMissing() throws Exception {
+        userDaoService.save(new User(901, "Batch One", LocalDate.of(1990, 1, 1)));
+        userDaoService.save(new User(902, "Batch Two", LocalDate.of(1990, 1, 1)));
+
+        batch("batchDelete", "[901, 998, 901, 902]")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[*].id").value(contains(901, 998, 901, 902)))
+                .andExpect(jsonPath("$.results[*].status").value(contains(200, 404, 404, 200)))
+                .andExpect(jsonPath("$.results[0].message").value("User Deleted Successfully"))
+                .andExpect(jsonPath("$.results[2].message").value("User with id 901 not found"));
+
+        batch("batchGet", "[901, 902]")
+                .andExpect(jsonPath("$.results[*].status").value(contains(404, 404)));
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedBatches() throws Exception {
+        String tooMany = IntStream.rangeClosed(1, UserBatchRequest.MAX_IDS + 1)
+                .mapToObj(Integer::toString)
+                .collect(Collectors.joining(", ", "[", "]"));
+
+        batch("batchDelete", tooMany)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("at most 1000 ids per batch")));
+        batch("batchGet", tooMany)
+                .andExpect(status().isBadRequest());
+        batch("batchGet", "[]")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("ids must not be empty")));
+
+        batch("batchGet", "[1, 2, 3]")
+                .andExpect(jsonPath("$.results[*].status").value(contains(200, 200, 200)));
+    }
+
+    private ResultActions batch(String operation, String ids) throws Exception {
+        return mockMvc.perform(post("/v1/users:" + operation)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\": " + ids + "}"));
+    }
+}
@@ -0,0 +1,211 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.context.support.ResourceBundleMessageSource;
+
+import com.cool.socialmedia.social_media.config.LocaleConfig;
+
+import jakarta.validation.Validation;
+import tools.jackson.databind.json.JsonMapper;
+
+class UserBulkImporterTest {
+
+    private final UserDaoService userDaoService = new UserDaoService(UserPersistence.NONE, event -> {
+    });
+    private UserBulkImporter importer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        importer = new UserBulkImporter(userDaoService, JsonMapper.builder().build(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new LocaleConfig().messageCatalog(messageSource, "messages"));
+        LocaleContextHolder.setLocale(Locale.US);
+    }
+
+    @AfterEach
+    void tearDown() {
+        LocaleContextHolder.resetLocaleContext();
+    }
+
+    @Test
+    void importsValidNdjsonLinesAndReportsTheRest() throws IOException {
+        UserImportReport report = importer.importNdjson(body("""
+                {"id":10,"name":"Alice","dob":"1980-01-01"}
+
+                {"id":11,"name":
+                {"id":12,"name":"A","dob":"1980-01-01"}
+                {"name":"Generated","dob":"1980-01-01"}
+                """));
+
+        assertThat(report.received()).isEqualTo(4);
+        assertThat(report.imported()).isEqualTo(2);
+        assertThat(report.failed()).isEqualTo(2);
+        assertThat(report.errorsTruncated()).isFalse();
+        assertThat(report.errors()).extracting(UserImportReport.LineError::line).containsExactly(3L, 4L);
+        assertThat(report.errors().get(0).message()).startsWith("Malformed JSON");
+        assertThat(report.errors().get(1).id()).isEqualTo(12);
+        assertThat(report.errors().get(1).message()).isEqualTo("Name should have at least 2 characters");
+        assertThat(userDaoService.findOne(10).getName()).isEqualTo("Alice");
+        assertThat(userDaoService.findAll()).extracting(User::getName).contains("Generated");
+    }
+
+    @Test
+    void importsCsvWithAHeaderAndQuotedFields() throws IOException {
+        UserImportReport report = importer.importCsv(body("id,name,dob\r\n"
+                + "20,\"Smith, Anna\",1980-01-01\r\n"
+                + "21,\"Say \"\"hi\"\"\",1981-01-01\n"
+                + ",Auto,1982-02-02\n"
+                + "x,Bad,1980-01-01\n"
+                + "22,Two\n"));
+
+        assertThat(report.received()).isEqualTo(5);
+        assertThat(report.imported()).isEqualTo(3);
+        assertThat(report.errors()).extracting(UserImportReport.LineError::line).containsExactly(5L, 6L);
+        assertThat(report.errors().get(0).message()).startsWith("Malformed CSV");
+        assertThat(report.errors().get(1).message()).isEqualTo("Expected 3 columns (id,name,dob) but found 2");
+        assertThat(userDaoService.findOne(20).getName()).isEqualTo("Smith, Anna");
+        assertThat(userDaoService.findOne(21).getName()).isEqualTo("Say \"hi\"");
+        assertThat(userDaoService.findAll()).extracting(User::getName).contains("Auto");
+    }
+
+    @Test
+    void splitsCsvOnUnquotedCommas() {
+        assertThat(UserBulkImporter.splitCsv("1,Ann,2000-01-01")).containsExactly("1", "Ann", "2000-01-01");
+        assertThat(UserBulkImporter.splitCsv("\"a,b\",\"\",\"x\"\"y\"")).containsExactly("a,b", "", "x\"y");
+        assertThat(UserBulkImporter.splitCsv(",,")).containsExactly("", "", "");
+        assertThat(UserBulkImporter.splitCsv("")).containsExactly("");
+    }
+
+    @Test
+    void importsInputLongerThanOneBatch() throws IOException {
+        int count = UserBulkImporter.BATCH_SIZE * 2 + 1;
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            ndjson.append("{\"id\":").append(1000 + i).append(",\"name\":\"User").append(i)
+                    .append("\",\"dob\":\"1980-01-01\"}\n");
+        }
+
+        UserImportReport report = importer.importNdjson(body(ndjson.toString()));
+
+        assertThat(report.imported()).isEqualTo(count);
+        assertThat(userDaoService.findOne(1000 + count - 1)).isNotNull();
+    }
+
+    @Test
+    void reportsConflictsInLineOrder() throws IOException {
+        UserImportReport report = importer.importNdjson(body("""
+                {"id":2,"name":"Again","dob":"1980-01-01"}
+                not json
+                {"id":1,"name":"Again","dob":"1980-01-01"}
+                {"id":30,"name":"New","dob":"1980-01-01"}
+                """));
+
+        assertThat(report.imported()).isEqualTo(1);
+        assertThat(report.errors()).extracting(UserImportReport.LineError::line).containsExactly(1L, 2L, 3L);
+        assertThat(report.errors().get(0).message()).isEqualTo("User with id 2 already exists");
+        assertThat(report.errors().get(2).id()).isEqualTo(1);
+        assertThat(userDaoService.findOne(1).getName()).isEqualTo("John");
+    }
+
+    @Test
+    void keepsTheFirstErrorsByLineWhenTruncating() throws IOException {
+        // The conflict on line 1 is only found after every malformed line.
+        StringBuilder ndjson = new StringBuilder("{\"id\":1,\"name\":\"Again\",\"dob\":\"1980-01-01\"}\n");
+        for (int i = 0; i < UserBulkImporter.MAX_REPORTED_ERRORS; i++) {
+            ndjson.append("not json\n");
+        }
+
+        UserImportReport report = importer.importNdjson(body(ndjson.toString()));
+
+        assertThat(report.failed()).isEqualTo(UserBulkImporter.MAX_REPORTED_ERRORS + 1);
+        assertThat(report.errorsTruncated()).isTrue();
+        assertThat(report.errors()).hasSize(UserBulkImporter.MAX_REPORTED_ERRORS);
+        assertThat(report.errors().get(0).line()).isEqualTo(1);
+        assertThat(report.errors().get(0).id()).isEqualTo(1);
+        assertThat(report.errors().get(UserBulkImporter.MAX_REPORTED_ERRORS - 1).line())
+                .isEqualTo(UserBulkImporter.MAX_REPORTED_ERRORS);
+    }
+
+    @Test
+    void skipsLinesOverTheLengthLimit() throws IOException {
+        String name = "x".repeat(UserBulkImporter.MAX_LINE_LENGTH);
+        UserImportReport report = importer.importNdjson(body(
+                "{\"id\":40,\"name\":\"" + name + "\",\"dob\":\"1980-01-01\"}\n"
+                        + "{\"id\":41,\"name\":\"Fits\",\"dob\":\"1980-01-01\"}"));
+
+        assertThat(report.received()).isEqualTo(2);
+        assertThat(report.imported()).isEqualTo(1);
+        assertThat(report.errors()).singleElement().satisfies(error -> {
+            assertThat(error.line()).isEqualTo(1);
+            assertThat(error.message()).isEqualTo("Line longer than 65,536 characters");
+        });
+        assertThat(userDaoService.findOne(40)).isNull();
+        assertThat(userDaoService.findOne(41)).isNotNull();
+    }
+
+    @Test
+    void acceptsLinesOfExactlyTheLengthLimit() throws IOException {
+        String prefix = "40,";
+        String suffix = ",1980-01-01";
+        String name = "x".repeat(UserBulkImporter.MAX_LINE_LENGTH - prefix.length() - suffix.length());
+
+        UserImportReport report = importer.importCsv(body(prefix + name + suffix + "\r\n"));
+
+        assertThat(report.imported()).isEqualTo(1);
+        assertThat(userDaoService.findOne(40).getName()).hasSize(name.length());
+    }
+
+    @Test
+    void reportsMalformedLinesInTheRequestLocale() throws IOException {
+        LocaleContextHolder.setLocale(Locale.FRENCH);
+
+        UserImportReport report = importer.importCsv(body("x,Bad,1980-01-01\n50,Two\n"));
+
+        assertThat(report.errors()).extracting(UserImportReport.LineError::message)
+                .satisfiesExactly(
+                        message -> assertThat(message).startsWith("CSV invalide : "),
+                        message -> assertThat(message).isEqualTo("3 colonnes attendues (id,name,dob) mais 2 trouvées"));
+    }
+
+    @Test
+    void splitsLinesLikeReadLineAcrossBufferBoundaries() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2_000; i++) {
+            text.append("x".repeat(i * 7 % 100)).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        text.append("last");
+
+        List<String> expected = new BufferedReader(new StringReader(text.toString())).lines().toList();
+        List<String> actual = new ArrayList<>();
+        try (UserBulkImporter.Lines lines = new UserBulkImporter.Lines(body(text.toString()))) {
+            String line;
+            while ((line = lines.next()) != null) {
+                assertThat(lines.tooLong()).isFalse();
+                actual.add(line);
+            }
+        }
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    private static InputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
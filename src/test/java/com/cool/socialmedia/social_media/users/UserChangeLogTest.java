@@ -0,0 +1,100 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class UserChangeLogTest {
+
+    private static final int THREADS = 8;
+    private static final int WRITES_PER_THREAD = 2000;
+
+    @Test
+    void syncingClientConvergesWhileWritersAndCompactionRun() throws Exception {
+        UserDaoService userDaoService = newUserDaoService();
+        Map<Integer, String> client = new HashMap<>();
+        String token = sync(userDaoService, client, null);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                        int id = 1 + random.nextInt(200);
+                        if (random.nextBoolean()) {
+                            userDaoService.save(new User(id, "user-" + i, LocalDate.of(1990, 1, 1)));
+                        } else {
+                            userDaoService.delete(id);
+                        }
+                    }
+                    return null;
+                });
+            }
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 200; i++) {
+                    userDaoService.compactChanges(Duration.ofDays(1));
+                }
+                return null;
+            });
+            start.countDown();
+            while (!executor.isTerminated()) {
+                token = sync(userDaoService, client, token);
+                executor.shutdown();
+                executor.awaitTermination(10, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        token = sync(userDaoService, client, token);
+
+        Map<Integer, String> store = new HashMap<>();
+        userDaoService.findAll().forEach(user -> store.put(user.getId(), user.getName()));
+        assertThat(client).isEqualTo(store);
+    }
+
+    @Test
+    void tokensOlderThanAnExpiredTombstoneAreRefused() {
+        UserDaoService userDaoService = newUserDaoService();
+        String before = userDaoService.findChanges(null, 100).token();
+        userDaoService.delete(2);
+
+        userDaoService.compactChanges(Duration.ofDays(1));
+        assertThat(userDaoService.findChanges(before, 100).deleted()).containsExactly(2);
+
+        userDaoService.compactChanges(Duration.ofMillis(-1));
+        assertThat(userDaoService.findChanges(before, 100)).isNull();
+        assertThat(userDaoService.findChanges(null, 100).changed()).extracting(User::getId).containsExactly(1, 3);
+        assertThat(userDaoService.findChanges("bogus", 100)).isNull();
+    }
+
+    private static String sync(UserDaoService userDaoService, Map<Integer, String> client, String token) {
+        UserChanges changes;
+        do {
+            changes = userDaoService.findChanges(token, 50);
+            assertThat(changes).isNotNull();
+            changes.changed().forEach(user -> client.put(user.getId(), user.getName()));
+            changes.deleted().forEach(client::remove);
+            token = changes.token();
+        } while (changes.more());
+        return token;
+    }
+
+    private static UserDaoService newUserDaoService() {
+        return new UserDaoService(UserPersistence.NONE, event -> {
+        });
+    }
+}
@@ -0,0 +1,207 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class UserDaoServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS = 500;
+    private static final int ATTEMPTS_PER_ID = 8;
+    private static final int BATCH_BASE = 100_000;
+    private static final int BATCH = 25;
+    private static final int ROUNDS = 200;
+
+    @Test
+    void saveIfAbsentHasExactlyOneWinnerPerId() throws Exception {
+        UserDaoService userDaoService = newUserDaoService();
+        ConcurrentHashMap<Integer, AtomicInteger> winners = new ConcurrentHashMap<>();
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int attempt = 0; attempt < ATTEMPTS_PER_ID; attempt++) {
+                for (int i = 0; i < IDS; i++) {
+                    int id = 1000 + i;
+                    String name = "user-" + id + "-" + attempt;
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        User saved = userDaoService.saveIfAbsent(new User(id, name, LocalDate.of(1990, 1, 1)));
+                        if (saved != null) {
+                            winners.computeIfAbsent(id, key -> new AtomicInteger()).incrementAndGet();
+                        } else {
+                            conflicts.incrementAndGet();
+                        }
+                        return null;
+                    }));
+                }
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(winners).hasSize(IDS);
+        assertThat(winners.values()).allSatisfy(count -> assertThat(count.get()).isEqualTo(1));
+        assertThat(conflicts.get()).isEqualTo(IDS * (ATTEMPTS_PER_ID - 1));
+        for (int i = 0; i < IDS; i++) {
+            assertThat(userDaoService.findOne(1000 + i)).isNotNull();
+        }
+    }
+
+    @Test
+    void saveIfAbsentRejectsSeededIds() {
+        UserDaoService userDaoService = newUserDaoService();
+
+        assertThat(userDaoService.saveIfAbsent(new User(1, "Impostor", LocalDate.of(2000, 1, 1)))).isNull();
+        assertThat(userDaoService.findOne(1).getName()).isEqualTo("John");
+    }
+
+    @Test
+    void generatedIdsAreUniqueAndSkipClientChosenIds() throws Exception {
+        UserDaoService userDaoService = newUserDaoService();
+        Set<Integer> generated = ConcurrentHashMap.newKeySet();
+        AtomicInteger explicitWins = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < IDS * ATTEMPTS_PER_ID; i++) {
+                int explicitId = 10 + i;
+                boolean explicit = i % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    User user = new User(explicit ? explicitId : null, "generated", LocalDate.of(1990, 1, 1));
+                    User saved = userDaoService.saveIfAbsent(user);
+                    if (saved != null && explicit) {
+                        explicitWins.incrementAndGet();
+                    } else if (saved != null) {
+                        assertThat(generated.add(saved.getId())).isTrue();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(generated).hasSize(IDS * ATTEMPTS_PER_ID / 2);
+        assertThat(generated).doesNotContain(1, 2, 3);
+        assertThat(userDaoService.findAll()).hasSize(3 + generated.size() + explicitWins.get());
+    }
+
+    @Test
+    void scansNeverSeeAHalfAppliedBatchOrAChangingSnapshot() throws Exception {
+        UserDaoService userDaoService = newUserDaoService();
+        List<User> before = userDaoService.findAll();
+        List<User> beforeCopy = List.copyOf(before);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger scans = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS / 2; t++) {
+                int writer = t;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        int first = BATCH_BASE + (writer * ROUNDS + round) * BATCH;
+                        List<User> batch = new ArrayList<>(BATCH);
+                        List<Integer> ids = new ArrayList<>(BATCH);
+                        for (int id = first; id < first + BATCH; id++) {
+                            batch.add(new User(id, "batch-" + first, LocalDate.of(1990, 1, 1)));
+                            ids.add(id);
+                        }
+                        assertThat(userDaoService.saveAllIfAbsent(batch).isEmpty()).isTrue();
+                        if (round % 2 == 0) {
+                            assertThat(userDaoService.deleteAll(ids).isEmpty()).isTrue();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> readers = new ArrayList<>();
+            for (int t = 0; t < THREADS / 2; t++) {
+                readers.add(executor.submit(() -> {
+                    start.await();
+                    long lastVersion = 0;
+                    while (writing.get()) {
+                        long version = userDaoService.getVersion();
+                        assertThat(version).isGreaterThanOrEqualTo(lastVersion);
+                        lastVersion = version;
+                        assertWholeBatches(userDaoService.findAll());
+                        assertWholeBatches(userDaoService.streamAll().toList());
+                        List<User> page = userDaoService.findPage(BATCH_BASE - 1, null, 40).items();
+                        assertThat(page).extracting(User::getId).isSorted().doesNotHaveDuplicates();
+                        scans.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : writers) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<?> future : readers) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(scans.get()).isPositive();
+        assertThat(before).containsExactlyElementsOf(beforeCopy);
+        List<User> after = userDaoService.findAll();
+        assertThat(after).hasSize(3 + THREADS / 2 * ROUNDS / 2 * BATCH);
+        assertThat(after).allSatisfy(user -> assertThat(userDaoService.findOne(user.getId())).isSameAs(user));
+    }
+
+    // Ids are strictly increasing, and each batch is either fully present or
+    // fully absent.
+    private static void assertWholeBatches(List<User> users) {
+        Map<Integer, Integer> batchSizes = new HashMap<>();
+        int previous = Integer.MIN_VALUE;
+        for (User user : users) {
+            assertThat(user.getId()).isGreaterThan(previous);
+            previous = user.getId();
+            if (user.getId() >= BATCH_BASE) {
+                batchSizes.merge((user.getId() - BATCH_BASE) / BATCH, 1, Integer::sum);
+            }
+        }
+        assertThat(batchSizes.values()).allSatisfy(size -> assertThat(size).isEqualTo(BATCH));
+    }
+
+    private static UserDaoService newUserDaoService() {
+        return new UserDaoService(UserPersistence.NONE, event -> {
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class UserDaoServiceDeleteAllTest {
+
+    private final List<UserEvent> events = new ArrayList<>();
+
+    @Test
+    void reportsMissingIdsByPositionIncludingRepeats() {
+        UserDaoService userDaoService = new UserDaoService(UserPersistence.NONE, event -> events.add((UserEvent) event));
+
+        BitSet missing = userDaoService.deleteAll(Arrays.asList(2, 99, 2, null, 3));
+
+        assertThat(missing.stream().toArray()).containsExactly(1, 2, 3);
+        assertThat(userDaoService.findAll()).extracting(User::getId).containsExactly(1);
+        assertThat(events).extracting(event -> event.user().getId()).containsExactly(2, 3);
+    }
+
+    @Test
+    void restoresTheUsersWhenTheBackendRefuses() {
+        List<Collection<Integer>> attempts = new ArrayList<>();
+        UserDaoService userDaoService = new UserDaoService(new UserPersistence() {
+            @Override
+            public void deleteAll(Collection<Integer> ids) {
+                attempts.add(List.copyOf(ids));
+                throw new IllegalStateException("backend down");
+            }
+        }, event -> events.add((UserEvent) event));
+        User jane = userDaoService.findOne(2);
+
+        assertThatThrownBy(() -> userDaoService.deleteAll(List.of(1, 2, 99)))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(attempts).containsExactly(List.of(1, 2));
+        assertThat(userDaoService.findAll()).extracting(User::getId).containsExactly(1, 2, 3);
+        assertThat(userDaoService.findOne(2)).isSameAs(jane);
+        assertThat(userDaoService.findPage(null, null, 10).items()).extracting(User::getId).containsExactly(1, 2, 3);
+        assertThat(userDaoService.search("ja", null, null, null, 10).items()).containsExactly(jane);
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void leavesTheBackendAloneWhenNothingWasRemoved() {
+        List<Collection<Integer>> attempts = new ArrayList<>();
+        UserDaoService userDaoService = new UserDaoService(new UserPersistence() {
+            @Override
+            public void deleteAll(Collection<Integer> ids) {
+                attempts.add(ids);
+            }
+        }, event -> {
+        });
+
+        assertThat(userDaoService.deleteAll(List.of(98, 99)).cardinality()).isEqualTo(2);
+        assertThat(attempts).isEmpty();
+    }
+}
@@ -0,0 +1,145 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Writes to the same ids race each other against a backend that is slow to
+ * apply them and sometimes refuses them; afterwards the backend has to hold
+ * exactly what memory holds.
+ */
+class UserDaoServiceOrderingTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 50;
+    private static final int OPERATIONS = 20;
+    private static final int FIRST_ID = 700;
+    private static final int IDS = 2;
+    private static final LocalDate DOB = LocalDate.of(1990, 1, 1);
+
+    private final Map<Integer, String> backend = new ConcurrentHashMap<>();
+    private volatile boolean refusing;
+
+    private final UserPersistence persistence = new UserPersistence() {
+        @Override
+        public void insert(User user) {
+            save(user);
+        }
+
+        @Override
+        public void insertAll(Collection<User> users) {
+            refuseSometimes();
+            users.forEach(this::apply);
+        }
+
+        @Override
+        public void save(User user) {
+            refuseSometimes();
+            apply(user);
+        }
+
+        @Override
+        public void delete(Integer id) {
+            refuseSometimes();
+            pause();
+            backend.remove(id);
+        }
+
+        @Override
+        public void deleteAll(Collection<Integer> ids) {
+            refuseSometimes();
+            for (Integer id : ids) {
+                pause();
+                backend.remove(id);
+            }
+        }
+
+        private void apply(User user) {
+            pause();
+            backend.put(user.getId(), user.getName());
+        }
+
+        // A slow round trip, so a later write to the same id gets a chance
+        // to overtake this one.
+        private void pause() {
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(50_000));
+        }
+
+        private void refuseSometimes() {
+            if (refusing && ThreadLocalRandom.current().nextInt(10) == 0) {
+                throw new IllegalStateException("backend refused");
+            }
+        }
+    };
+
+    @Test
+    void backendEndsUpWithWhatMemoryHolds() throws Exception {
+        UserDaoService userDaoService = new UserDaoService(persistence, event -> {
+        });
+        refusing = true;
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                race(userDaoService, executor, round);
+
+                for (int id = FIRST_ID; id < FIRST_ID + IDS; id++) {
+                    User user = userDaoService.findOne(id);
+                    assertThat(backend.get(id)).as("id %d after round %d", id, round)
+                            .isEqualTo(user == null ? null : user.getName());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(userDaoService.findAll()).allSatisfy(user ->
+                assertThat(backend.get(user.getId())).isEqualTo(user.getName()));
+    }
+
+    private static void race(UserDaoService userDaoService, ExecutorService executor, int round) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    int id = FIRST_ID + random.nextInt(IDS);
+                    String name = "user-" + round + "-" + thread + "-" + i;
+                    try {
+                        switch (random.nextInt(5)) {
+                            case 0, 1 -> userDaoService.save(new User(id, name, DOB));
+                            case 2 -> userDaoService.delete(id);
+                            case 3 -> userDaoService.saveAllIfAbsent(List.of(new User(id, name, DOB),
+                                    new User(FIRST_ID + random.nextInt(IDS), name, DOB)));
+                            default -> userDaoService.deleteAll(List.of(id, FIRST_ID + random.nextInt(IDS)));
+                        }
+                    } catch (IllegalStateException e) {
+                        // Refused by the backend and rolled back.
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+    }
+}
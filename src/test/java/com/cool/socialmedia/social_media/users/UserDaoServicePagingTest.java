@@ -0,0 +1,107 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class UserDaoServicePagingTest {
+
+    private static final LocalDate DOB = LocalDate.of(1990, 1, 1);
+
+    // Ids 1 to 3 are seeded; 4 to 10 are added here.
+    private final UserDaoService userDaoService = newUserDaoService(10);
+
+    @Test
+    void firstPageHasOnlyANextCursor() {
+        UserPage<User> page = userDaoService.findPage(null, null, 3);
+
+        assertThat(ids(page)).containsExactly(1, 2, 3);
+        assertThat(page.nextAfter()).isEqualTo(3);
+        assertThat(page.prevBefore()).isNull();
+    }
+
+    @Test
+    void middlePageHasBothCursors() {
+        UserPage<User> page = userDaoService.findPage(3, null, 3);
+
+        assertThat(ids(page)).containsExactly(4, 5, 6);
+        assertThat(page.nextAfter()).isEqualTo(6);
+        assertThat(page.prevBefore()).isEqualTo(4);
+    }
+
+    @Test
+    void lastPageHasOnlyAPrevCursor() {
+        UserPage<User> exact = userDaoService.findPage(7, null, 3);
+        assertThat(ids(exact)).containsExactly(8, 9, 10);
+        assertThat(exact.nextAfter()).isNull();
+        assertThat(exact.prevBefore()).isEqualTo(8);
+
+        UserPage<User> partial = userDaoService.findPage(8, null, 5);
+        assertThat(ids(partial)).containsExactly(9, 10);
+        assertThat(partial.nextAfter()).isNull();
+        assertThat(partial.prevBefore()).isEqualTo(9);
+    }
+
+    @Test
+    void beforePagesEndJustBelowTheCursor() {
+        UserPage<User> page = userDaoService.findPage(null, 8, 3);
+        assertThat(ids(page)).containsExactly(5, 6, 7);
+        assertThat(page.nextAfter()).isEqualTo(7);
+        assertThat(page.prevBefore()).isEqualTo(5);
+
+        UserPage<User> first = userDaoService.findPage(null, 3, 5);
+        assertThat(ids(first)).containsExactly(1, 2);
+        assertThat(first.nextAfter()).isEqualTo(2);
+        assertThat(first.prevBefore()).isNull();
+    }
+
+    @Test
+    void cursorsNeedNotBeStoredIds() {
+        userDaoService.delete(5);
+
+        assertThat(ids(userDaoService.findPage(5, null, 2))).containsExactly(6, 7);
+        assertThat(ids(userDaoService.findPage(null, 5, 2))).containsExactly(3, 4);
+    }
+
+    @Test
+    void pagesPastEitherEndAreEmpty() {
+        for (UserPage<User> page : List.of(userDaoService.findPage(10, null, 3),
+                userDaoService.findPage(null, 1, 3), userDaoService.findPage(Integer.MAX_VALUE, null, 3))) {
+            assertThat(page.items()).isEmpty();
+            assertThat(page.nextAfter()).isNull();
+            assertThat(page.prevBefore()).isNull();
+        }
+    }
+
+    @Test
+    void limitIsCappedAtMaxLimit() {
+        UserDaoService large = newUserDaoService(UserPageLinks.MAX_LIMIT + 500);
+        int limit = UserPageLinks.limit(UserPageLinks.MAX_LIMIT * 10);
+
+        UserPage<User> page = large.findPage(null, null, limit);
+
+        assertThat(limit).isEqualTo(UserPageLinks.MAX_LIMIT);
+        assertThat(page.items()).hasSize(UserPageLinks.MAX_LIMIT);
+        assertThat(page.nextAfter()).isEqualTo(UserPageLinks.MAX_LIMIT);
+        assertThat(UserPageLinks.limit(null)).isEqualTo(UserPageLinks.DEFAULT_LIMIT);
+    }
+
+    private static UserDaoService newUserDaoService(int maxId) {
+        UserDaoService userDaoService = new UserDaoService(UserPersistence.NONE, event -> {
+        });
+        List<User> users = new ArrayList<>();
+        for (int id = 4; id <= maxId; id++) {
+            users.add(new User(id, "user-" + id, DOB));
+        }
+        userDaoService.saveAllIfAbsent(users);
+        return userDaoService;
+    }
+
+    private static List<Integer> ids(UserPage<User> page) {
+        return page.items().stream().map(User::getId).toList();
+    }
+}
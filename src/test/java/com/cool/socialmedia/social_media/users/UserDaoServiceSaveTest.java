@@ -0,0 +1,96 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class UserDaoServiceSaveTest {
+
+    private static final LocalDate DOB = LocalDate.of(1980, 5, 5);
+
+    private final List<UserEvent> events = new ArrayList<>();
+    private boolean refuseSaves;
+    private final UserDaoService userDaoService = new UserDaoService(new UserPersistence() {
+        @Override
+        public void save(User user) {
+            if (refuseSaves) {
+                throw new IllegalStateException("backend down");
+            }
+        }
+    }, event -> events.add((UserEvent) event));
+
+    @Test
+    void putsTheReplacedUserBackWhenTheBackendRefuses() {
+        User john = userDaoService.findOne(1);
+        long version = userDaoService.getVersion();
+        refuseSaves = true;
+
+        assertThatThrownBy(() -> userDaoService.save(new User(1, "Johnny", DOB)))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(userDaoService.findOne(1)).isSameAs(john);
+        assertThat(userDaoService.findAll()).extracting(User::getName).containsExactly("John", "Jane", "Bob");
+        assertThat(userDaoService.search("johnny", null, null, null, 10).items()).isEmpty();
+        assertThat(userDaoService.search("john", null, null, null, 10).items()).containsExactly(john);
+        assertThat(userDaoService.search(null, DOB.minusDays(1), DOB.plusDays(1), null, 10).items()).isEmpty();
+        // Versions only grow, so a cached tag for the failed save cannot match.
+        assertThat(userDaoService.getVersion()).isGreaterThan(version);
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void removesANewUserWhenTheBackendRefuses() {
+        refuseSaves = true;
+
+        assertThatThrownBy(() -> userDaoService.save(new User(50, "Nora", DOB)))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(userDaoService.findOne(50)).isNull();
+        assertThat(userDaoService.findAll()).extracting(User::getId).containsExactly(1, 2, 3);
+        assertThat(userDaoService.search("nora", null, null, null, 10).items()).isEmpty();
+        assertThat(events).isEmpty();
+    }
+
+    @Test
+    void publishesTheReplacementOnceStored() {
+        User john = userDaoService.findOne(1);
+
+        User johnny = userDaoService.save(new User(1, "Johnny", DOB));
+
+        assertThat(userDaoService.findOne(1)).isSameAs(johnny);
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.type()).isEqualTo(UserEvent.Type.UPDATED);
+            assertThat(event.previous()).isSameAs(john);
+        });
+    }
+
+    @Test
+    void keepsGeneratingIdsAfterAUserTakesTheLastOne() {
+        userDaoService.save(new User(Integer.MAX_VALUE, "Last", DOB));
+        userDaoService.save(new User(5, "Five", DOB));
+
+        User created = userDaoService.save(new User(null, "Generated", DOB));
+
+        assertThat(created.getId()).isEqualTo(6);
+        assertThat(userDaoService.findOne(Integer.MAX_VALUE).getName()).isEqualTo("Last");
+    }
+
+    @Test
+    void skipsTakenIdsThatTheGeneratorIgnored() {
+        int far = 4 + UserIdGenerator.DEFAULT_WINDOW + 1;
+        userDaoService.save(new User(far, "Far", DOB));
+        for (int id = 4; id < far; id++) {
+            userDaoService.saveIfAbsent(new User(null, "Filler", DOB));
+        }
+
+        User created = userDaoService.save(new User(null, "Generated", DOB));
+
+        assertThat(created.getId()).isEqualTo(far + 1);
+        assertThat(userDaoService.findOne(far).getName()).isEqualTo("Far");
+    }
+}
@@ -0,0 +1,132 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+/**
+ * ETag and If-None-Match on the read endpoints. Runs in its own context with
+ * a settable clock, so V2 tags can be taken across midnight; writes only
+ * touch ids created here.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserETagsTest {
+
+    private static final List<String> PATHS = List.of("/v1/users/1", "/v2/users/1", "/v3/users/1",
+            "/v1/users", "/v2/users", "/v3/users", "/v1/users?limit=2", "/v2/users?fields=id,age");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserDaoService userDaoService;
+
+    @Autowired
+    private SettableClock clock;
+
+    @Test
+    void answersNotModifiedForTheCurrentTag() throws Exception {
+        for (String path : PATHS) {
+            String etag = etag(get(path));
+            assertThat(etag).as(path).isNotNull();
+
+            mockMvc.perform(get(path).header("If-None-Match", etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("ETag", etag))
+                    .andExpect(content().bytes(new byte[0]));
+            mockMvc.perform(get(path).header("If-None-Match", "\"stale\", " + etag))
+                    .andExpect(status().isNotModified());
+            mockMvc.perform(get(path).header("If-None-Match", "\"stale\""))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void changesTagAfterAWrite() throws Exception {
+        userDaoService.save(new User(961, "Tagged", LocalDate.of(1990, 1, 1)));
+        String item = etag(get("/v3/users/961"));
+        String collection = etag(get("/v1/users"));
+
+        userDaoService.save(new User(961, "Retagged", LocalDate.of(1990, 1, 1)));
+
+        assertThat(etag(get("/v3/users/961"))).isNotEqualTo(item);
+        assertThat(etag(get("/v1/users"))).isNotEqualTo(collection);
+        mockMvc.perform(get("/v3/users/961").header("If-None-Match", item))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/v1/users").header("If-None-Match", collection))
+                .andExpect(status().isOk());
+        // Another user's write changes the collection tag only.
+        String untouched = etag(get("/v1/users/2"));
+        userDaoService.delete(961);
+        assertThat(etag(get("/v1/users/2"))).isEqualTo(untouched);
+    }
+
+    @Test
+    void changesV2TagsAtMidnight() throws Exception {
+        String v1 = etag(get("/v1/users/1"));
+        String item = etag(get("/v2/users/1"));
+        String collection = etag(get("/v2/users"));
+
+        clock.advance(Duration.ofDays(1));
+
+        assertThat(etag(get("/v2/users/1"))).isNotEqualTo(item);
+        assertThat(etag(get("/v2/users"))).isNotEqualTo(collection);
+        mockMvc.perform(get("/v2/users/1").header("If-None-Match", item))
+                .andExpect(status().isOk());
+        assertThat(etag(get("/v1/users/1"))).isEqualTo(v1);
+    }
+
+    @Test
+    void tagsEachRepresentationSeparately() throws Exception {
+        String json = etag(get("/v1/users/1").accept(MediaType.APPLICATION_JSON));
+        String xml = etag(get("/v1/users/1").accept(MediaType.APPLICATION_XML));
+        assertThat(xml).isNotEqualTo(json);
+
+        mockMvc.perform(get("/v1/users/1").accept(MediaType.APPLICATION_XML).header("If-None-Match", json))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_XML));
+        mockMvc.perform(get("/v3/users").accept(MediaType.APPLICATION_JSON).header("If-None-Match",
+                etag(get("/v3/users").accept(MediaType.parseMediaType("application/hal+json")))))
+                .andExpect(status().isOk());
+    }
+
+    private String etag(MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+    }
+
+    @TestConfiguration
+    static class ClockConfig {
+
+        @Bean
+        SettableClock settableClock() {
+            return new SettableClock(Instant.parse("2026-06-15T12:00:00Z"));
+        }
+
+        @Bean
+        @Primary
+        DayClock settableDayClock(SettableClock clock) {
+            return new DayClock(clock);
+        }
+    }
+}
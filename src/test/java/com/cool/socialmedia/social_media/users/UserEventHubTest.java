@@ -0,0 +1,242 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.cool.socialmedia.social_media.config.LocaleConfig;
+import com.cool.socialmedia.social_media.config.MessageCatalog;
+import com.cool.socialmedia.social_media.users.UserEventHub.SlowConsumerPolicy;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import jakarta.validation.Validation;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * GET /v1/users/events against hubs with small limits. A {@link Gate} in
+ * front of the controller can hold every body write, standing in for a
+ * client that has stopped reading.
+ */
+class UserEventHubTest {
+
+    private static final Duration NO_HEARTBEAT = Duration.ofMinutes(5);
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final Gate gate = new Gate();
+    private UserDaoService userDaoService;
+    private MockMvc mockMvc;
+
+    @Test
+    void refusesSubscribersBeyondTheCapUntilOneLeaves() throws Exception {
+        start(4, 1, SlowConsumerPolicy.DISCONNECT, NO_HEARTBEAT);
+        MvcResult first = subscribe();
+
+        mockMvc.perform(get("/v1/users/events"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(status().reason("Too many event subscribers, try again later"));
+
+        first.getRequest().getAsyncContext().complete();
+        MvcResult second = subscribe();
+        userDaoService.save(new User(10, "Eve", LocalDate.of(1990, 1, 1)));
+        awaitContent(second, content -> content.contains("event:created"));
+        assertThat(first.getResponse().getContentAsString()).doesNotContain("Eve");
+    }
+
+    @Test
+    void pushesEachWriteAsANamedEvent() throws Exception {
+        start(4, 1, SlowConsumerPolicy.DISCONNECT, NO_HEARTBEAT);
+        MvcResult events = subscribe();
+
+        userDaoService.save(new User(10, "Eve", LocalDate.of(1990, 1, 1)));
+        userDaoService.save(new User(10, "Eva", LocalDate.of(1990, 1, 1)));
+        userDaoService.delete(10);
+
+        String content = awaitContent(events, text -> text.contains("event:deleted"));
+        assertThat(content).containsSubsequence("event:created", "Eve", "event:updated", "Eva", "event:deleted");
+    }
+
+    @Test
+    void sendsHeartbeatsWhenIdle() throws Exception {
+        start(4, 1, SlowConsumerPolicy.DISCONNECT, Duration.ofMillis(20));
+        MvcResult events = subscribe();
+
+        awaitContent(events, content -> content.indexOf(":heartbeat") != content.lastIndexOf(":heartbeat"));
+    }
+
+    @Test
+    void dropPolicyReportsHowManyEventsWereMissed() throws Exception {
+        start(2, 1, SlowConsumerPolicy.DROP, NO_HEARTBEAT);
+        MvcResult events = subscribe();
+
+        gate.close();
+        save(1001);
+        gate.awaitBlockedWriter();
+        for (int id = 1002; id <= 1005; id++) {
+            save(id);
+        }
+        gate.open();
+
+        String content = awaitContent(events, text -> text.contains("user-1003"));
+        assertThat(content).containsSubsequence("user-1001", "event:overflow\ndata:2\n", "user-1002", "user-1003");
+        assertThat(content).doesNotContain("user-1004", "user-1005");
+        save(1006);
+        awaitContent(events, text -> text.contains("user-1006"));
+    }
+
+    @Test
+    void disconnectPolicyClosesTheSlowSubscriber() throws Exception {
+        start(1, 1, SlowConsumerPolicy.DISCONNECT, NO_HEARTBEAT);
+        MvcResult events = subscribe();
+
+        gate.close();
+        save(1001);
+        gate.awaitBlockedWriter();
+        save(1002);
+        save(1003);
+
+        // Completed with the send failure rather than left to time out.
+        assertThat(events.getAsyncResult(TimeUnit.SECONDS.toMillis(5))).isInstanceOf(IOException.class);
+        gate.open();
+        subscribe();
+    }
+
+    private void start(int bufferSize, int maxSubscribers, SlowConsumerPolicy policy, Duration heartbeat)
+            throws IOException {
+        UserEventHub hub = new UserEventHub(jsonMapper, bufferSize, maxSubscribers, policy, heartbeat,
+                Duration.ofMinutes(5));
+        userDaoService = new UserDaoService(UserPersistence.NONE, event -> hub.onUserEvent((UserEvent) event));
+        ResourceBundleMessageSource messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        MessageCatalog messages = new LocaleConfig().messageCatalog(messageSource, "messages");
+        UserResourcesV1 controller = new UserResourcesV1(userDaoService, messages, new UserStreamWriter(jsonMapper),
+                new UserBulkImporter(userDaoService, jsonMapper,
+                        Validation.buildDefaultValidatorFactory().getValidator(), messages),
+                hub);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).addFilters(gate).build();
+    }
+
+    private MvcResult subscribe() throws Exception {
+        return mockMvc.perform(get("/v1/users/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private void save(int id) {
+        userDaoService.save(new User(id, "user-" + id, LocalDate.of(1990, 1, 1)));
+    }
+
+    private static String awaitContent(MvcResult result, Predicate<String> condition) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String content = result.getResponse().getContentAsString();
+        while (!condition.test(content)) {
+            assertThat(System.nanoTime()).as("event stream: %s", content).isLessThan(deadline);
+            Thread.sleep(10);
+            content = result.getResponse().getContentAsString();
+        }
+        return content;
+    }
+
+    /**
+     * Blocks response body writes between {@link #close()} and
+     * {@link #open()}; an interrupted writer fails with an IOException, as a
+     * blocked socket write would.
+     */
+    static final class Gate implements Filter {
+
+        private volatile CountDownLatch opened = new CountDownLatch(0);
+        private volatile CountDownLatch blocked = new CountDownLatch(1);
+
+        void close() {
+            blocked = new CountDownLatch(1);
+            opened = new CountDownLatch(1);
+        }
+
+        void open() {
+            opened.countDown();
+        }
+
+        void awaitBlockedWriter() throws InterruptedException {
+            assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+                throws IOException, ServletException {
+            chain.doFilter(request, new HttpServletResponseWrapper((HttpServletResponse) response) {
+                @Override
+                public ServletOutputStream getOutputStream() throws IOException {
+                    return new GatedOutputStream(super.getOutputStream());
+                }
+            });
+        }
+
+        private final class GatedOutputStream extends ServletOutputStream {
+
+            private final ServletOutputStream delegate;
+
+            GatedOutputStream(ServletOutputStream delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                pass();
+                delegate.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                pass();
+                delegate.write(b, off, len);
+            }
+
+            @Override
+            public boolean isReady() {
+                return delegate.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                delegate.setWriteListener(writeListener);
+            }
+
+            private void pass() throws IOException {
+                CountDownLatch latch = opened;
+                if (latch.getCount() == 0) {
+                    return;
+                }
+                blocked.countDown();
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("client stopped reading");
+                }
+            }
+        }
+    }
+}
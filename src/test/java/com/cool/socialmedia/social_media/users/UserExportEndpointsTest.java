@@ -0,0 +1,100 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+/**
+ * GET /v1/users:export in each format, with and without gzip.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserExportEndpointsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void exportsEachFormat() throws Exception {
+        export(get("/v1/users:export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"users.json\""))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$[0].name").value("John"));
+        export(get("/v1/users:export?format=xml"))
+                .andExpect(content().contentType(MediaType.APPLICATION_XML))
+                .andExpect(content().string(startsWith("<?xml version='1.0' encoding='UTF-8'?><users><User>")))
+                .andExpect(content().string(containsString("<User><id>1</id><name>John</name><dob>1990-01-01</dob></User>")));
+        export(get("/v1/users:export?format=csv"))
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(content().string(startsWith("id,name,dob\n1,John,1990-01-01\n")));
+
+        mockMvc.perform(get("/v1/users:export?format=yaml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void gzipsWhenTheClientAcceptsIt() throws Exception {
+        String plain = export(get("/v1/users:export?format=csv"))
+                .andReturn().getResponse().getContentAsString();
+
+        byte[] compressed = export(get("/v1/users:export?format=csv").header("Accept-Encoding", "br, gzip;q=0.5"))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(gunzip(compressed)).isEqualTo(plain);
+    }
+
+    @Test
+    void honoursQValuesAndExactCodings() throws Exception {
+        for (String refused : new String[] { "gzip;q=0", "gzip; q=0.000", "x-gzip", "gzipped", "deflate",
+                "*, gzip;q=0", "*;q=0" }) {
+            export(get("/v1/users:export").header("Accept-Encoding", refused))
+                    .andExpect(header().doesNotExist("Content-Encoding"));
+        }
+        for (String accepted : new String[] { "gzip", "GZIP;Q=0.1", "deflate, *", "identity;q=1, gzip;q=0.8" }) {
+            export(get("/v1/users:export").header("Accept-Encoding", accepted))
+                    .andExpect(header().string("Content-Encoding", "gzip"));
+        }
+        assertThat(UserStreamWriter.acceptsGzip(null)).isFalse();
+        assertThat(UserStreamWriter.acceptsGzip("gzip;q=bogus")).isFalse();
+    }
+
+    private ResultActions export(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult started = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * fields= on every read endpoint that takes it, against the seeded users.
+ * Parameters go in the URI, as next/prev links are built from the query
+ * string.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserFieldsEndpointsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void v1WritesOnlyTheListedProperties() throws Exception {
+        mockMvc.perform(get("/v1/users/1?fields=id,name"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"id\":1,\"name\":\"John\"}", true));
+        mockMvc.perform(get("/v1/users?fields=name&limit=2"))
+                .andExpect(content().json("[{\"name\":\"John\"},{\"name\":\"Jane\"}]", true))
+                .andExpect(header().string("Link", containsString("fields=name")));
+        mockMvc.perform(get("/v1/users/search?namePrefix=j&fields=dob"))
+                .andExpect(content().json("[{\"dob\":\"1991-02-02\"},{\"dob\":\"1990-01-01\"}]", true));
+
+        MvcResult streamed = mockMvc.perform(get("/v1/users?fields=id&stream=true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(streamed))
+                .andExpect(content().json("[{\"id\":1},{\"id\":2},{\"id\":3}]", true));
+    }
+
+    @Test
+    void v2ComputesOnlyTheListedDerivedProperties() throws Exception {
+        mockMvc.perform(get("/v2/users/1?fields=fullName"))
+                .andExpect(content().json("{\"fullName\":\"Mr./Ms. John\"}", true));
+        mockMvc.perform(get("/v2/users/1?fields=age"))
+                .andExpect(jsonPath("$.age").isNumber())
+                .andExpect(jsonPath("$.id").doesNotExist());
+        mockMvc.perform(get("/v2/users?fields=id&limit=1"))
+                .andExpect(content().json("[{\"id\":1}]", true))
+                .andExpect(header().string("Link", containsString("fields=id")));
+    }
+
+    @Test
+    void v3LinksOnlyWhenAsked() throws Exception {
+        mockMvc.perform(get("/v3/users/1?fields=id"))
+                .andExpect(content().json("{\"id\":1}", true));
+        mockMvc.perform(get("/v3/users/1?fields=name,_links"))
+                .andExpect(jsonPath("$.id").doesNotExist())
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/v3/users/1"))
+                .andExpect(jsonPath("$._links.all-users.href").value("http://localhost/v3/users"));
+
+        mockMvc.perform(get("/v3/users?fields=id&limit=1"))
+                .andExpect(content().json("{\"_embedded\":{\"userList\":[{\"id\":1}]}}", true));
+        mockMvc.perform(get("/v3/users?fields=id,_links&limit=1"))
+                .andExpect(jsonPath("$._embedded.userList[0].id").value(1))
+                .andExpect(jsonPath("$._embedded.userList[0]._links.self.href").value("http://localhost/v3/users/1"))
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/v3/users?fields=id,_links&limit=1"))
+                .andExpect(jsonPath("$._links.next.href")
+                        .value("http://localhost/v3/users?fields=id,_links&limit=1&after=1"));
+    }
+
+    @Test
+    void unknownFieldsAreRejected() throws Exception {
+        mockMvc.perform(get("/v1/users/1?fields=age"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("fields may only list id, name, dob"));
+        mockMvc.perform(get("/v2/users?fields=id,bogus"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.detail").value("fields may only list id, name, dob, fullName, age"));
+        mockMvc.perform(get("/v3/users?fields=fullName"))
+                .andExpect(status().isBadRequest());
+    }
+}
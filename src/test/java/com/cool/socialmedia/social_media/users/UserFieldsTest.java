@@ -0,0 +1,37 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class UserFieldsTest {
+
+    private final User user = new User(7, "Ada", LocalDate.of(1990, 6, 1));
+
+    @Test
+    void projectsOnlyTheSelectedFieldsInDeclarationOrder() {
+        UserFields fields = UserFields.parse(" age, id ,,id", UserFields.V2);
+
+        assertThat(fields.project(user, LocalDate.of(2026, 5, 31)).getProperties())
+                .containsExactly(Map.entry("id", 7), Map.entry("age", 35));
+    }
+
+    @Test
+    void doesNotReadTheDayUnlessAgeIsSelected() {
+        UserFields fields = UserFields.parse("fullName", UserFields.V2);
+
+        assertThat(fields.project(user, null).getProperties())
+                .containsExactly(Map.entry("fullName", "Mr./Ms. Ada"));
+    }
+
+    @Test
+    void rejectsFieldsTheVersionDoesNotHave() {
+        assertThat(UserFields.parse("id,age", UserFields.V1)).isNull();
+        assertThat(UserFields.parse("fullName", UserFields.V3)).isNull();
+        assertThat(UserFields.parse(" , ", UserFields.V1)).isNull();
+        assertThat(UserFields.parse("_links", UserFields.V3).has(UserFields.Field.LINKS)).isTrue();
+    }
+}
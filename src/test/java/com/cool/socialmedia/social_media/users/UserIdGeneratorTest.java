@@ -0,0 +1,57 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class UserIdGeneratorTest {
+
+    @Test
+    void handsOutIdsAfterTheHighestAdvancedPast() {
+        UserIdGenerator generator = new UserIdGenerator(1, 4, 1);
+        generator.advancePast(10);
+        generator.advancePast(3);
+
+        assertThat(generator.nextId()).isEqualTo(11);
+        assertThat(generator.nextId()).isEqualTo(12);
+    }
+
+    @Test
+    void ignoresIdsBeyondTheWindow() {
+        UserIdGenerator generator = new UserIdGenerator(1, 4, 1, 100);
+
+        generator.advancePast(Integer.MAX_VALUE);
+        generator.advancePast(500);
+        assertThat(generator.nextId()).isEqualTo(1);
+
+        generator.advancePast(50);
+        generator.advancePast(120);
+        // The block reserved before the advance is used up first.
+        for (int id = 2; id <= 4; id++) {
+            assertThat(generator.nextId()).isEqualTo(id);
+        }
+        assertThat(generator.nextId()).isEqualTo(121);
+    }
+
+    @Test
+    void followsADenseRangeInIdOrder() {
+        UserIdGenerator generator = new UserIdGenerator(1, 4, 1, 100);
+        for (int id = 1; id <= 10_000; id++) {
+            generator.advancePast(id);
+        }
+
+        assertThat(generator.nextId()).isEqualTo(10_001);
+    }
+
+    @Test
+    void wrapsToTheFirstIdInsteadOfRunningOut() {
+        UserIdGenerator generator = new UserIdGenerator(1, 4, 1, Integer.MAX_VALUE);
+        generator.advancePast(Integer.MAX_VALUE - 10);
+
+        for (int id = Integer.MAX_VALUE - 9; id < Integer.MAX_VALUE - 1; id++) {
+            assertThat(generator.nextId()).isEqualTo(id);
+        }
+        assertThat(generator.nextId()).isEqualTo(1);
+        assertThat(generator.nextId()).isEqualTo(2);
+    }
+}
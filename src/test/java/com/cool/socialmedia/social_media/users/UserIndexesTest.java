@@ -0,0 +1,140 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class UserIndexesTest {
+
+    private static final String[] NAMES = { "Anna", "anton", "Bob", "bobby", "Carla", "ANDREA" };
+
+    @Test
+    void pagedSearchesMatchAFullScan() {
+        UserDaoService userDaoService = newUserDaoService();
+        for (int id = 10; id < 1010; id++) {
+            userDaoService.save(new User(id, NAMES[id % NAMES.length] + id, LocalDate.of(1980, 1, 1).plusDays(id * 7)));
+        }
+        LocalDate after = LocalDate.of(1985, 6, 1);
+        LocalDate before = LocalDate.of(1995, 6, 1);
+
+        assertThat(ids(searchAll(userDaoService, "an", null, null)))
+                .isEqualTo(ids(scan(userDaoService, "an", null, null, byName())));
+        assertThat(ids(searchAll(userDaoService, "AN", after, before)))
+                .isEqualTo(ids(scan(userDaoService, "an", after, before, byName())));
+        assertThat(ids(searchAll(userDaoService, null, after, before)))
+                .isEqualTo(ids(scan(userDaoService, null, after, before, byDob())));
+        assertThat(searchAll(userDaoService, null, before, after)).isEmpty();
+    }
+
+    @Test
+    void refusesCursorsBeforeTheStartOfTheRange() {
+        UserDaoService userDaoService = newUserDaoService();
+        LocalDate bornAfter = LocalDate.of(1991, 6, 1);
+
+        assertThat(userDaoService.search(null, bornAfter, null, cursor("d:0:0"), 10)).isNull();
+        assertThat(userDaoService.search("j", null, null, cursor("n:0:a"), 10)).isNull();
+
+        // A cursor handed out by the search itself still pages on.
+        userDaoService.save(new User(4, "Jack", LocalDate.of(1995, 1, 1)));
+        userDaoService.save(new User(5, "Jill", LocalDate.of(1996, 1, 1)));
+        UserSearchResult first = userDaoService.search(null, bornAfter, null, null, 1);
+        assertThat(ids(first.items())).containsExactly(3);
+        assertThat(ids(userDaoService.search(null, bornAfter, null, first.next(), 10).items()))
+                .containsExactly(4, 5);
+    }
+
+    @Test
+    void indexesAgreeWithTheStoreAfterConcurrentWrites() throws Exception {
+        UserDaoService userDaoService = newUserDaoService();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 5000; i++) {
+                        int id = 1 + random.nextInt(300);
+                        if (random.nextInt(4) == 0) {
+                            userDaoService.delete(id);
+                        } else {
+                            userDaoService.save(new User(id, NAMES[random.nextInt(NAMES.length)],
+                                    LocalDate.of(1950, 1, 1).plusDays(random.nextInt(20000))));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ids(searchAll(userDaoService, "", null, null)))
+                .isEqualTo(ids(scan(userDaoService, "", null, null, byName())));
+        assertThat(ids(searchAll(userDaoService, null, LocalDate.MIN, null)))
+                .isEqualTo(ids(scan(userDaoService, null, LocalDate.MIN, null, byDob())));
+    }
+
+    private static List<User> searchAll(UserDaoService userDaoService, String prefix, LocalDate after,
+            LocalDate before) {
+        List<User> all = new ArrayList<>();
+        String cursor = null;
+        do {
+            UserSearchResult page = userDaoService.search(prefix, after, before, cursor, 7);
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(7);
+            all.addAll(page.items());
+            cursor = page.next();
+        } while (cursor != null);
+        return all;
+    }
+
+    private static List<User> scan(UserDaoService userDaoService, String prefix, LocalDate after, LocalDate before,
+            Comparator<User> order) {
+        return userDaoService.findAll().stream()
+                .filter(user -> prefix == null || user.getName().toLowerCase(Locale.ROOT).startsWith(prefix))
+                .filter(user -> after == null || user.getDob().isAfter(after))
+                .filter(user -> before == null || user.getDob().isBefore(before))
+                .sorted(order)
+                .toList();
+    }
+
+    private static Comparator<User> byName() {
+        return Comparator.comparing((User user) -> user.getName().toLowerCase(Locale.ROOT)).thenComparing(User::getId);
+    }
+
+    private static Comparator<User> byDob() {
+        return Comparator.comparing(User::getDob).thenComparing(User::getId);
+    }
+
+    private static String cursor(String decoded) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(decoded.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        return users.stream().map(User::getId).toList();
+    }
+
+    private static UserDaoService newUserDaoService() {
+        return new UserDaoService(UserPersistence.NONE, event -> {
+        });
+    }
+}
@@ -0,0 +1,56 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+class UserLinksTest {
+
+    private final UserLinks userLinks = new UserLinks();
+
+    @AfterEach
+    void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "http, localhost, 8080, ''",
+            "http, example.com, 80, ''",
+            "https, example.com, 443, /social",
+            "https, example.com, 8443, /social",
+    })
+    void linksMatchWebMvcLinkBuilder(String scheme, String host, int port, String contextPath) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", contextPath + "/v3/users");
+        request.setScheme(scheme);
+        request.setServerName(host);
+        request.setServerPort(port);
+        request.setContextPath(contextPath);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        assertSameLink(userLinks.user(42), linkTo(methodOn(UserResourcesV3.class).getUser(42, null)).withSelfRel());
+        assertSameLink(userLinks.allUsers(LinkRelation.of("all-users")),
+                linkTo(methodOn(UserResourcesV3.class).getAllUsers(null, null, null, null)).withRel("all-users").expand());
+        assertSameLink(userLinks.usersPage(null, null, null),
+                linkTo(methodOn(UserResourcesV3.class).getAllUsers(null, null, null, null)).withSelfRel().expand());
+        assertSameLink(userLinks.usersPage(10, 3, null),
+                linkTo(methodOn(UserResourcesV3.class).getAllUsers(10, 3, null, null)).withSelfRel().expand());
+        assertSameLink(userLinks.usersPage(null, null, 7),
+                linkTo(methodOn(UserResourcesV3.class).getAllUsers(null, null, 7, null)).withSelfRel().expand());
+    }
+
+    private static void assertSameLink(Link actual, Link expected) {
+        assertThat(actual.getHref()).isEqualTo(expected.getHref());
+        assertThat(actual.getRel()).isEqualTo(expected.getRel());
+        assertThat(actual.isTemplated()).isEqualTo(expected.isTemplated());
+    }
+}
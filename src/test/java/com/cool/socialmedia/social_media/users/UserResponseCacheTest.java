@@ -0,0 +1,157 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+
+class UserResponseCacheTest {
+
+    private final UserDaoService userDaoService = new UserDaoService(UserPersistence.NONE, event -> {
+    });
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger rendered = new AtomicInteger();
+
+    // Stands in for the controllers: "[n]" for the n-th rendered response.
+    private final FilterChain chain = (request, response) -> {
+        HttpServletResponse http = (HttpServletResponse) response;
+        http.setContentType("application/json");
+        http.setHeader("ETag", "\"v" + userDaoService.getVersion() + "\"");
+        http.getOutputStream().write(("[" + rendered.incrementAndGet() + "]").getBytes(StandardCharsets.UTF_8));
+    };
+
+    @Test
+    void servesRepeatedRequestsFromTheStoredBytesUntilTheNextWrite() throws Exception {
+        UserResponseCache cache = new UserResponseCache(userDaoService, new DayClock(), registry,
+                DataSize.ofKilobytes(1));
+
+        assertThat(get(cache, "/v1/users", null).getContentAsString()).isEqualTo("[1]");
+        MockHttpServletResponse hit = get(cache, "/v1/users", null);
+        assertThat(hit.getContentAsString()).isEqualTo("[1]");
+        assertThat(hit.getContentType()).isEqualTo("application/json");
+        assertThat(hit.getHeader("ETag")).isEqualTo("\"v" + userDaoService.getVersion() + "\"");
+
+        MockHttpServletResponse notModified = get(cache, "/v1/users", hit.getHeader("ETag"));
+        assertThat(notModified.getStatus()).isEqualTo(304);
+        assertThat(notModified.getContentAsByteArray()).isEmpty();
+
+        // Another query is another entry.
+        assertThat(get(cache, "/v1/users?limit=1", null).getContentAsString()).isEqualTo("[2]");
+
+        userDaoService.save(new User(99, "Zed", LocalDate.of(2000, 1, 1)));
+        assertThat(get(cache, "/v1/users", null).getContentAsString()).isEqualTo("[3]");
+
+        assertThat(rendered).hasValue(3);
+        assertThat(registry.counter("users.response.cache", "result", "hit").count()).isEqualTo(2);
+        assertThat(registry.counter("users.response.cache", "result", "miss").count()).isEqualTo(3);
+    }
+
+    @Test
+    void evictsBodiesNotUsedSinceTheLastSweepBeyondTheSizeBound() throws Exception {
+        UserResponseCache cache = new UserResponseCache(userDaoService, new DayClock(), registry,
+                DataSize.ofBytes(12));
+
+        for (int limit = 1; limit <= 4; limit++) {
+            get(cache, "/v2/users?limit=" + limit, null);
+        }
+        get(cache, "/v2/users?limit=1", null);
+        get(cache, "/v2/users?limit=5", null);
+        assertThat(cache.size()).isEqualTo(12);
+
+        // The entry used since it was stored and the one just stored survive.
+        assertThat(get(cache, "/v2/users?limit=1", null).getContentAsString()).isEqualTo("[1]");
+        assertThat(get(cache, "/v2/users?limit=5", null).getContentAsString()).isEqualTo("[5]");
+        assertThat(rendered).hasValue(5);
+    }
+
+    @Test
+    void matchesThePathWithinTheApplication() throws Exception {
+        UserResponseCache cache = new UserResponseCache(userDaoService, new DayClock(), registry,
+                DataSize.ofKilobytes(1));
+
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v3/users");
+            request.setContextPath("/api");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            cache.doFilter(request, response, chain);
+            assertThat(response.getContentAsString()).isEqualTo("[1]");
+        }
+        assertThat(cache.size()).isEqualTo(3);
+    }
+
+    @Test
+    void keepsTheSizeExactUnderConcurrentStoresAndClears() throws Exception {
+        UserResponseCache cache = new UserResponseCache(userDaoService, new DayClock(), registry,
+                DataSize.ofBytes(64));
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                results.add(pool.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        get(cache, "/v1/users?limit=" + (thread * 10 + i % 10), null);
+                        if (i % 100 == 0) {
+                            cache.onUserEvent(null);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        cache.onUserEvent(null);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void leavesOtherRequestsAlone() throws Exception {
+        UserResponseCache cache = new UserResponseCache(userDaoService, new DayClock(), registry,
+                DataSize.ofKilobytes(1));
+
+        get(cache, "/v1/users?stream=true", null);
+        get(cache, "/v1/users?stream=true", null);
+        get(cache, "/v1/users/1", null);
+        get(cache, "/v1/users/1", null);
+
+        assertThat(rendered).hasValue(4);
+        assertThat(cache.size()).isZero();
+    }
+
+    private MockHttpServletResponse get(UserResponseCache cache, String uri, String ifNoneMatch) throws Exception {
+        int query = uri.indexOf('?');
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", query < 0 ? uri : uri.substring(0, query));
+        if (query >= 0) {
+            request.setQueryString(uri.substring(query + 1));
+            for (String param : uri.substring(query + 1).split("&")) {
+                String[] pair = param.split("=");
+                request.addParameter(pair[0], pair[1]);
+            }
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        cache.doFilter(request, response, chain);
+        return response;
+    }
+}
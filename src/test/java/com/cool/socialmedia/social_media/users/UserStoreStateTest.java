@@ -0,0 +1,96 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+class UserStoreStateTest {
+
+    private static final LocalDate DOB = LocalDate.of(1990, 1, 1);
+
+    @Test
+    void matchesASortedMapThroughRandomChanges() {
+        Random random = new Random(42);
+        NavigableMap<Integer, User> expected = new TreeMap<>();
+        UserStoreState state = UserStoreState.EMPTY;
+        for (int round = 0; round < 2_000; round++) {
+            // Mostly single changes, which copy paths, with the odd batch
+            // large enough to rebuild the tree.
+            int count = round % 100 == 0 ? 1 + random.nextInt(3_000) : 1 + random.nextInt(3);
+            NavigableMap<Integer, User> changes = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                int id = random.nextInt(20_000);
+                changes.put(id, random.nextInt(3) == 0 ? null : new User(id, "user-" + round, DOB));
+            }
+            changes.forEach((id, user) -> {
+                if (user == null) {
+                    expected.remove(id);
+                } else {
+                    expected.put(id, user);
+                }
+            });
+            state = state.with(changes);
+
+            assertThat(state.version()).isEqualTo(round + 1);
+            assertThat(state.size()).isEqualTo(expected.size());
+            if (round % 50 == 0) {
+                assertThat(state.users()).containsExactlyElementsOf(expected.values());
+            }
+            int probe = random.nextInt(20_001);
+            assertThat(state.ceiling(probe)).isEqualTo(expected.headMap(probe, false).size());
+            assertThat(state.higher(probe)).isEqualTo(expected.headMap(probe, true).size());
+            if (!expected.isEmpty()) {
+                int position = random.nextInt(expected.size());
+                assertThat(state.users().get(position).getId())
+                        .isEqualTo(new ArrayList<>(expected.keySet()).get(position));
+            }
+        }
+        assertThat(state.users()).containsExactlyElementsOf(expected.values());
+    }
+
+    @Test
+    void leavesEarlierStatesUntouched() {
+        NavigableMap<Integer, User> initial = new TreeMap<>();
+        for (int id = 0; id < 10_000; id++) {
+            initial.put(id, new User(id, "user-" + id, DOB));
+        }
+        UserStoreState before = UserStoreState.EMPTY.with(initial);
+        List<User> snapshot = List.copyOf(before.users());
+
+        NavigableMap<Integer, User> changes = new TreeMap<>();
+        changes.put(5, null);
+        changes.put(5_000, new User(5_000, "replaced", DOB));
+        changes.put(20_000, new User(20_000, "added", DOB));
+        UserStoreState after = before.with(changes);
+
+        assertThat(before.users()).containsExactlyElementsOf(snapshot);
+        assertThat(after.size()).isEqualTo(10_000);
+        assertThat(after.users().get(after.ceiling(5_000)).getName()).isEqualTo("replaced");
+        assertThat(after.higher(4)).isEqualTo(5);
+        assertThat(after.users(9_998, 10_000)).extracting(User::getId).containsExactly(9_999, 20_000);
+    }
+
+    @Test
+    void shrinksBackToEmpty() {
+        NavigableMap<Integer, User> changes = new TreeMap<>();
+        for (int id = 0; id < 5_000; id++) {
+            changes.put(id, new User(id, "user-" + id, DOB));
+        }
+        UserStoreState state = UserStoreState.EMPTY.with(changes);
+        for (int id = 4_999; id >= 0; id--) {
+            NavigableMap<Integer, User> removal = new TreeMap<>();
+            removal.put(id, null);
+            state = state.with(removal);
+            assertThat(state.size()).isEqualTo(id);
+        }
+        assertThat(state.users()).isEmpty();
+        assertThat(state.ceiling(0)).isZero();
+    }
+}
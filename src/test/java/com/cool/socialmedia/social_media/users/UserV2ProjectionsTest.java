@@ -0,0 +1,77 @@
+package com.cool.socialmedia.social_media.users;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+class UserV2ProjectionsTest {
+
+    private final SettableClock clock = new SettableClock(Instant.parse("2026-06-15T23:59:59.999Z"));
+    private final DayClock dayClock = new DayClock(clock);
+    private final UserV2Projections projections = new UserV2Projections(dayClock);
+
+    @Test
+    void keepsTheSameDayUntilMidnight() {
+        LocalDate today = dayClock.today();
+        assertThat(today).isEqualTo(LocalDate.of(2026, 6, 15));
+        assertThat(dayClock.today()).isSameAs(today);
+
+        clock.advance(Duration.ofMillis(1));
+
+        assertThat(dayClock.today()).isEqualTo(LocalDate.of(2026, 6, 16));
+    }
+
+    @Test
+    void rebuildsTheProjectionWithTheNewAgeAfterMidnight() {
+        User user = stored(new User(7, "Birthday", LocalDate.of(1990, 6, 16)), 5);
+        UserV2 before = projections.of(user);
+        assertThat(before.getAge()).isEqualTo(35);
+        assertThat(projections.of(user)).isSameAs(before);
+
+        clock.advance(Duration.ofMillis(1));
+
+        UserV2 after = projections.of(user);
+        assertThat(after).isNotSameAs(before);
+        assertThat(after.getAge()).isEqualTo(36);
+        assertThat(projections.of(user)).isSameAs(after);
+        assertThat(projections.today()).isEqualTo(LocalDate.of(2026, 6, 16));
+    }
+
+    @Test
+    void rebuildsTheProjectionOfAReplacedOrDeletedUser() {
+        User user = stored(new User(8, "Old", LocalDate.of(1990, 1, 1)), 1);
+        UserV2 old = projections.of(user);
+
+        User replaced = stored(new User(8, "New", LocalDate.of(1990, 1, 1)), 2);
+        projections.onUserEvent(new UserEvent(UserEvent.Type.UPDATED, replaced, user));
+        assertThat(projections.of(replaced)).isNotSameAs(old);
+        assertThat(projections.of(replaced).getName()).isEqualTo("New");
+
+        UserV2 current = projections.of(replaced);
+        projections.onUserEvent(new UserEvent(UserEvent.Type.DELETED, replaced));
+        assertThat(projections.of(replaced)).isNotSameAs(current);
+    }
+
+    @Test
+    void changesTheV2TagAtMidnightOnly() {
+        ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest());
+        String tag = UserETags.of(5, projections.today(), request);
+        assertThat(UserETags.of(5, projections.today(), request)).isEqualTo(tag);
+
+        clock.advance(Duration.ofMillis(1));
+
+        assertThat(UserETags.of(5, projections.today(), request)).isNotEqualTo(tag);
+        assertThat(UserETags.of(5, request)).isEqualTo(UserETags.of(5, request));
+    }
+
+    private static User stored(User user, long version) {
+        user.setVersion(version);
+        return user;
+    }
+}